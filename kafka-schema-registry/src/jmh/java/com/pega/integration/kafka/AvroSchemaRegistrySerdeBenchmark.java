@@ -0,0 +1,92 @@
+package com.pega.integration.kafka;
+
+import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.integration.kafka.testutils.RandomPageGenerator;
+import com.pega.integration.kafka.testutils.SchemaType;
+import com.pega.pegarules.priv.PegaAPI;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.runtime.PublicAPI;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import org.apache.avro.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.pega.integration.kafka.AvroSchemaRegistrySerde.SCHEMA_NAME_FORMAT;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures {@link AvroSchemaRegistrySerde#serialize} in each serialize mode and
+ * {@link AvroSchemaRegistrySerde#deserialize} in each deserialize mode. Run with {@code gradle jmh}, which also
+ * reports the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvroSchemaRegistrySerdeBenchmark {
+    private static final String TOPIC = "benchmark";
+    private static final int SAMPLE_SIZE = 64;
+
+    @Param({"FLAT", "DEEPLY_NESTED", "ARRAY_HEAVY", "UNION_HEAVY"})
+    private SchemaShape shape;
+
+    @Param({AvroSchemaRegistrySerde.SERIALIZE_MODE_RECORD, AvroSchemaRegistrySerde.SERIALIZE_MODE_DIRECT})
+    private String serializeMode;
+
+    @Param({AvroSchemaRegistrySerde.DESERIALIZE_MODE_RECORD, AvroSchemaRegistrySerde.DESERIALIZE_MODE_DIRECT})
+    private String deserializeMode;
+
+    private PublicAPI api;
+    private AvroSchemaRegistrySerde serde;
+    private ClipboardPage[] pages;
+    private byte[][] messages;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        api = new DSMPegaAPI(mock(PegaAPI.class));
+        Schema schema = shape.build();
+        MockSchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
+        schemaRegistryClient.register(String.format(SCHEMA_NAME_FORMAT, TOPIC, SchemaType.value), schema, 1, 1);
+
+        serde = new AvroSchemaRegistrySerde(schema.getName(), TOPIC, schema, schemaRegistryClient);
+        serde.useDirectSerialization(AvroSchemaRegistrySerde.SERIALIZE_MODE_DIRECT.equals(serializeMode));
+        serde.useDirectDeserialization(AvroSchemaRegistrySerde.DESERIALIZE_MODE_DIRECT.equals(deserializeMode));
+
+        RandomPageGenerator generator = new RandomPageGenerator();
+        pages = new ClipboardPage[SAMPLE_SIZE];
+        messages = new byte[SAMPLE_SIZE][];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            pages[i] = generator.populate(api, schema, schema.getName());
+            messages[i] = serde.serialize(api, pages[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serde.serialize(api, pages[nextSample()]);
+    }
+
+    @Benchmark
+    public ClipboardPage deserialize() {
+        return serde.deserialize(api, messages[nextSample()]);
+    }
+
+    private int nextSample() {
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return next;
+    }
+}
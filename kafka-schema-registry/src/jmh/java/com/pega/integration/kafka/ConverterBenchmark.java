@@ -0,0 +1,103 @@
+package com.pega.integration.kafka;
+
+import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.integration.kafka.converter.AvroBinaryToClipboardPageConverter;
+import com.pega.integration.kafka.converter.ClipboardPageToAvroBinaryConverter;
+import com.pega.integration.kafka.converter.ClipboardPageToGenericRecordConverter;
+import com.pega.integration.kafka.converter.GenericRecordToClipboardPageConverter;
+import com.pega.integration.kafka.converter.plan.ResolutionPlan;
+import com.pega.integration.kafka.converter.plan.ResolutionPlans;
+import com.pega.integration.kafka.testutils.RandomPageGenerator;
+import com.pega.pegarules.priv.PegaAPI;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.runtime.PublicAPI;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the converters between clipboard pages and Avro, without the schema registry and the Confluent serializers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+    private static final int SCHEMA_ID = 1;
+    private static final int SAMPLE_SIZE = 64;
+
+    @Param({"FLAT", "DEEPLY_NESTED", "ARRAY_HEAVY", "UNION_HEAVY"})
+    private SchemaShape shape;
+
+    private final ClipboardPageToGenericRecordConverter clipboardPageToGenericRecordConverter = new ClipboardPageToGenericRecordConverter();
+    private final GenericRecordToClipboardPageConverter genericRecordToClipboardPageConverter = new GenericRecordToClipboardPageConverter();
+    private final ClipboardPageToAvroBinaryConverter clipboardPageToAvroBinaryConverter = new ClipboardPageToAvroBinaryConverter();
+    private final AvroBinaryToClipboardPageConverter avroBinaryToClipboardPageConverter = new AvroBinaryToClipboardPageConverter();
+
+    private PublicAPI api;
+    private Schema schema;
+    private ResolutionPlan plan;
+    private ClipboardPage[] pages;
+    private GenericRecord[] records;
+    private byte[][] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        api = new DSMPegaAPI(mock(PegaAPI.class));
+        schema = shape.build();
+        plan = new ResolutionPlans().get(SCHEMA_ID, schema, schema);
+
+        RandomPageGenerator generator = new RandomPageGenerator();
+        pages = new ClipboardPage[SAMPLE_SIZE];
+        records = new GenericRecord[SAMPLE_SIZE];
+        messages = new byte[SAMPLE_SIZE][];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            pages[i] = generator.populate(api, schema, schema.getName());
+            records[i] = clipboardPageToGenericRecordConverter.convertClipboardPageToGenericRecord(pages[i], schema);
+            messages[i] = clipboardPageToAvroBinaryConverter.convertClipboardPageToAvroBinary(pages[i], schema, SCHEMA_ID);
+        }
+    }
+
+    @Benchmark
+    public GenericRecord clipboardPageToGenericRecord() {
+        return clipboardPageToGenericRecordConverter.convertClipboardPageToGenericRecord(pages[nextSample()], schema);
+    }
+
+    @Benchmark
+    public ClipboardPage genericRecordToClipboardPage() {
+        return genericRecordToClipboardPageConverter.convertGenericRecordToClipboardPage(api, records[nextSample()], schema.getName());
+    }
+
+    @Benchmark
+    public byte[] clipboardPageToAvroBinary() {
+        return clipboardPageToAvroBinaryConverter.convertClipboardPageToAvroBinary(pages[nextSample()], schema, SCHEMA_ID);
+    }
+
+    @Benchmark
+    public ClipboardPage avroBinaryToClipboardPage() throws IOException {
+        return avroBinaryToClipboardPageConverter.convertAvroBinaryToClipboardPage(api, messages[nextSample()], plan, schema.getName());
+    }
+
+    private int nextSample() {
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return next;
+    }
+}
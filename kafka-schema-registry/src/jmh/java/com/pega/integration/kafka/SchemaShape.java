@@ -0,0 +1,36 @@
+package com.pega.integration.kafka;
+
+import com.pega.integration.kafka.testutils.SchemaFactory;
+import org.apache.avro.Schema;
+
+/**
+ * Shapes of schemas the benchmarks are run against.
+ */
+public enum SchemaShape {
+    FLAT {
+        @Override
+        Schema build() {
+            return SchemaFactory.buildFlatSchema();
+        }
+    },
+    DEEPLY_NESTED {
+        @Override
+        Schema build() {
+            return SchemaFactory.buildDeeplyNestedSchema(8);
+        }
+    },
+    ARRAY_HEAVY {
+        @Override
+        Schema build() {
+            return SchemaFactory.buildArrayHeavySchema();
+        }
+    },
+    UNION_HEAVY {
+        @Override
+        Schema build() {
+            return SchemaFactory.buildUnionHeavySchema();
+        }
+    };
+
+    abstract Schema build();
+}
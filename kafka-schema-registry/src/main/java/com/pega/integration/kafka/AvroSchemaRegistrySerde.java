@@ -2,34 +2,86 @@ package com.pega.integration.kafka;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.pega.integration.kafka.compression.ZstdDictionaryCompression;
+import com.pega.integration.kafka.converter.AvroBinaryToClipboardPageConverter;
+import com.pega.integration.kafka.converter.ClipboardPageToAvroBinaryConverter;
+import com.pega.integration.kafka.converter.ClipboardPageToAvroBinaryConverter.BatchEncoder;
 import com.pega.integration.kafka.converter.ClipboardPageToGenericRecordConverter;
 import com.pega.integration.kafka.converter.GenericRecordToClipboardPageConverter;
+import com.pega.integration.kafka.converter.plan.NestingDepth;
+import com.pega.integration.kafka.converter.plan.ResolutionPlan;
+import com.pega.integration.kafka.converter.plan.ResolutionPlans;
+import com.pega.integration.kafka.converter.plan.SchemaProjection;
 import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.exception.SchemaRegistryException;
+import com.pega.integration.kafka.failure.DeadLetterSink;
+import com.pega.integration.kafka.failure.FailurePolicy;
+import com.pega.integration.kafka.metrics.SerdeMetrics;
+import com.pega.integration.kafka.registry.LocalSchemaRegistryClient;
+import com.pega.integration.kafka.registry.SchemaCache;
+import com.pega.integration.kafka.registry.SchemaRegistryConfiguration;
+import com.pega.integration.kafka.registry.SchemaRegistryConfigurationCache;
+import com.pega.integration.kafka.registry.SchemaRegistryClientPool;
+import com.pega.integration.kafka.registry.UncachedIdSchemaRegistryClient;
+import com.pega.integration.kafka.util.RateLimitedLogger;
+import com.pega.integration.kafka.util.ReusableByteArrayOutputStream;
+import com.pega.integration.kafka.util.SyntheticRecords;
 import com.pega.pegarules.pub.clipboard.ClipboardPage;
-import com.pega.pegarules.pub.clipboard.ClipboardProperty;
 import com.pega.pegarules.pub.database.DatabaseException;
 import com.pega.pegarules.pub.runtime.PublicAPI;
 import com.pega.pegarules.pub.util.HashStringMap;
 import com.pega.pegarules.pub.util.StringMap;
 import com.pega.platform.kafka.serde.PegaSerde;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.avro.AvroSchemaProvider;
 import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClientFactory;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import io.confluent.kafka.serializers.subject.TopicNameStrategy;
+import io.confluent.kafka.serializers.subject.strategy.SubjectNameStrategy;
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.commons.lang.StringUtils;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.SerializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
-import static com.pega.integration.kafka.util.SchemaRegistryUtils.parseSchemaContent;
-import static com.pega.integration.kafka.util.SchemaRegistryUtils.validateUrl;
-import static io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig.*;
-import static org.apache.commons.lang.StringUtils.isNotBlank;
+import static com.pega.integration.kafka.util.ConfluentWireFormat.readSchemaId;
+import static com.pega.integration.kafka.util.ConfluentWireFormat.writeHeader;
 
-public class AvroSchemaRegistrySerde implements PegaSerde {
+public class AvroSchemaRegistrySerde implements PegaSerde, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(AvroSchemaRegistrySerde.class);
 
     public static final String SCHEMA_REGISTRY_CONFIG_CLASS_KEY = "schema.registry.config";
@@ -37,23 +89,98 @@ public class AvroSchemaRegistrySerde implements PegaSerde {
     public static final String SCHEMA_NAME_FORMAT = "%s-%s";
     public static final String CLASS_NAME_KEY = "classname";
     public static final String TOPIC_NAME_KEY = "topicname";
+    public static final String SERIALIZE_MODE_KEY = "serialize.mode";
+    public static final String SERIALIZE_MODE_RECORD = "record";
+    public static final String SERIALIZE_MODE_DIRECT = "direct";
+    public static final String DESERIALIZE_MODE_KEY = "deserialize.mode";
+    public static final String DESERIALIZE_MODE_RECORD = "record";
+    public static final String DESERIALIZE_MODE_DIRECT = "direct";
+    public static final String SCHEMA_CACHE_MAX_SIZE_KEY = "schema.cache.max.size";
+    public static final String SCHEMA_CACHE_TTL_MS_KEY = "schema.cache.ttl.ms";
+    public static final String SCHEMA_CACHE_NEGATIVE_TTL_MS_KEY = "schema.cache.negative.ttl.ms";
+    public static final long SCHEMA_CACHE_MAX_SIZE_DEFAULT = 1000;
+    public static final long SCHEMA_CACHE_TTL_MS_DEFAULT = 0;
+    public static final long SCHEMA_CACHE_NEGATIVE_TTL_MS_DEFAULT = 60_000;
+    public static final String DESERIALIZE_PARALLELISM_KEY = "deserialize.parallelism";
+    public static final String SERIALIZE_ASYNC_THREADS_KEY = "serialize.async.threads";
+    public static final String SERIALIZE_ASYNC_QUEUE_SIZE_KEY = "serialize.async.queue.size";
+    public static final long SERIALIZE_ASYNC_QUEUE_SIZE_DEFAULT = 256;
+    public static final String PROJECTION_FIELDS_KEY = "projection.fields";
+    public static final String WARMUP_SCHEMA_VERSIONS_KEY = "warmup.schema.versions";
+    public static final String WARMUP_ITERATIONS_KEY = "warmup.iterations";
+    public static final String PAYLOAD_COMPRESSION_KEY = "payload.compression";
+    public static final String PAYLOAD_COMPRESSION_NONE = "none";
+    public static final String PAYLOAD_COMPRESSION_ZSTD_DICTIONARY = "zstd-dictionary";
+    public static final String PAYLOAD_COMPRESSION_SAMPLES_KEY = "payload.compression.dictionary.samples";
+    public static final String PAYLOAD_COMPRESSION_DICTIONARY_SIZE_KEY = "payload.compression.dictionary.size";
+    public static final String PAYLOAD_COMPRESSION_LEVEL_KEY = "payload.compression.level";
+    public static final String PAYLOAD_COMPRESSION_REGISTER_KEY = "payload.compression.dictionary.register";
+    public static final String PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_KEY = "payload.compression.max.message.size";
+    public static final long PAYLOAD_COMPRESSION_SAMPLES_DEFAULT = 1000;
+    public static final long PAYLOAD_COMPRESSION_DICTIONARY_SIZE_DEFAULT = 16 * 1024;
+    /**
+     * A few times the 1 MiB which Kafka accepts by default, since only messages which got smaller are compressed.
+     */
+    public static final long PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_DEFAULT = 4 * 1024 * 1024;
+    public static final String FAILURE_POLICY_KEY = "failure.policy";
+    public static final String DEAD_LETTER_SINK_CLASS_KEY = "failure.dead.letter.sink.class";
+    public static final String BATCH_API_KEY = "batch.api";
+    public static final String CONVERSION_MAX_DEPTH_KEY = "conversion.max.depth";
 
-    private final ClipboardPageToGenericRecordConverter clipboardPageToGenericRecordConverter;
-    private final GenericRecordToClipboardPageConverter genericRecordToClipboardPageConverter;
-    private final KafkaAvroSerializer delegateValueSerializer;
-    private final KafkaAvroDeserializer delegateValueDeserializer;
+    /**
+     * Configuration of this serde which doesn't affect the schema registry client, and so doesn't keep data sets from
+     * sharing a client.
+     */
+    private static final Set<String> SERDE_CONFIGURATION_KEYS = ImmutableSet.of(CLASS_NAME_KEY, TOPIC_NAME_KEY,
+            SCHEMA_REGISTRY_CONFIG_CLASS_KEY, SERIALIZE_MODE_KEY, DESERIALIZE_MODE_KEY, SCHEMA_CACHE_MAX_SIZE_KEY,
+            SCHEMA_CACHE_TTL_MS_KEY, SCHEMA_CACHE_NEGATIVE_TTL_MS_KEY, DESERIALIZE_PARALLELISM_KEY, SERIALIZE_ASYNC_THREADS_KEY,
+            SERIALIZE_ASYNC_QUEUE_SIZE_KEY, PROJECTION_FIELDS_KEY,
+            WARMUP_SCHEMA_VERSIONS_KEY, WARMUP_ITERATIONS_KEY, PAYLOAD_COMPRESSION_KEY, PAYLOAD_COMPRESSION_SAMPLES_KEY,
+            PAYLOAD_COMPRESSION_DICTIONARY_SIZE_KEY, PAYLOAD_COMPRESSION_LEVEL_KEY, PAYLOAD_COMPRESSION_REGISTER_KEY,
+            PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_KEY, FAILURE_POLICY_KEY, DEAD_LETTER_SINK_CLASS_KEY,
+            BATCH_API_KEY, CONVERSION_MAX_DEPTH_KEY);
+
+    /**
+     * Batches are split until a task deserializes at most this many messages.
+     */
+    private static final int DESERIALIZE_BATCH_SPLIT_SIZE = 16;
+    private static final int MAX_DESERIALIZE_PARALLELISM = 0x7fff;
+    private static final int MAX_SERIALIZE_ASYNC_THREADS = 256;
+    private static final long SERIALIZE_ASYNC_KEEP_ALIVE_SECONDS = 60;
+    private static final ConcurrentMap<Integer, ForkJoinPool> DESERIALIZATION_POOLS = new ConcurrentHashMap<>();
+    private static final long FAILURE_LOG_INTERVAL_SECONDS = 10;
+    private static final int NOT_FOUND = 404;
+    private static final String MOCK_URL_PREFIX = "mock://";
+
+    private ClipboardPageToGenericRecordConverter clipboardPageToGenericRecordConverter;
+    private ClipboardPageToAvroBinaryConverter clipboardPageToAvroBinaryConverter;
+    private GenericRecordToClipboardPageConverter genericRecordToClipboardPageConverter;
+    private final AvroBinaryToClipboardPageConverter avroBinaryToClipboardPageConverter;
+    private ResolutionPlans resolutionPlans;
+    private SchemaRegistryClient schemaRegistryClient;
+    private SchemaCache schemaCache;
+    private ZstdDictionaryCompression compression;
+    private SerdeMetrics metrics = new SerdeMetrics();
+    private KafkaAvroSerializer delegateValueSerializer;
 
     private String className;
     private String topicName;
     private Schema schema;
     private boolean useSchemaEvolution;
+    private boolean directSerialization;
+    private boolean directDeserialization;
+    private SchemaProjection projection;
+    private int schemaId;
+    private ForkJoinPool deserializationPool = ForkJoinPool.commonPool();
+    private ThreadPoolExecutor serializationExecutor;
+    private FailurePolicy failurePolicy = FailurePolicy.FAIL;
+    private DeadLetterSink deadLetterSink;
+    private final RateLimitedLogger failureLogger = new RateLimitedLogger(LOGGER, FAILURE_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
 
     @VisibleForTesting
     public AvroSchemaRegistrySerde() {
-        this.clipboardPageToGenericRecordConverter = new ClipboardPageToGenericRecordConverter();
-        this.genericRecordToClipboardPageConverter = new GenericRecordToClipboardPageConverter();
-        this.delegateValueSerializer = new KafkaAvroSerializer();
-        this.delegateValueDeserializer = new KafkaAvroDeserializer();
+        this.avroBinaryToClipboardPageConverter = new AvroBinaryToClipboardPageConverter();
+        createConverters(NestingDepth.DEFAULT_MAX_DEPTH);
     }
 
     /**
@@ -62,13 +189,17 @@ public class AvroSchemaRegistrySerde implements PegaSerde {
      */
     @VisibleForTesting
     protected AvroSchemaRegistrySerde(String className, String topicName, Schema schema, SchemaRegistryClient schemaRegistryClient) {
-        this.clipboardPageToGenericRecordConverter = new ClipboardPageToGenericRecordConverter();
-        this.genericRecordToClipboardPageConverter = new GenericRecordToClipboardPageConverter();
+        this.avroBinaryToClipboardPageConverter = new AvroBinaryToClipboardPageConverter();
+        createConverters(NestingDepth.DEFAULT_MAX_DEPTH);
+        this.schemaRegistryClient = schemaRegistryClient;
+        this.metrics = SerdeMetrics.forTopicAndClass(topicName, className);
+        this.schemaCache = new SchemaCache(schemaRegistryClient, SCHEMA_CACHE_MAX_SIZE_DEFAULT, SCHEMA_CACHE_TTL_MS_DEFAULT, SCHEMA_CACHE_NEGATIVE_TTL_MS_DEFAULT, metrics);
+        this.compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, topicName, (int) PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_DEFAULT);
         this.delegateValueSerializer = new KafkaAvroSerializer(schemaRegistryClient);
-        this.delegateValueDeserializer = new KafkaAvroDeserializer(schemaRegistryClient);
         this.className = className;
         this.topicName = topicName;
         this.schema = schema;
+        this.serializationExecutor = newSerializationExecutor(defaultSerializeAsyncThreads(), (int) SERIALIZE_ASYNC_QUEUE_SIZE_DEFAULT);
     }
 
     public static PegaSerde create() {
@@ -84,11 +215,358 @@ public class AvroSchemaRegistrySerde implements PegaSerde {
 
         String configName = configuration.get(SCHEMA_REGISTRY_CONFIG_CLASS_KEY).toString();
         ClipboardPage schemaRegistryConfiguration = fetchSchemaRegistryConfiguration(api, configName);
-        Map additionalConfiguration = resolveSchemaRegistryConfiguration(schemaRegistryConfiguration);
+        Map additionalConfiguration = resolveSchemaRegistryConfiguration(configName, schemaRegistryConfiguration);
         additionalConfiguration.putAll(configuration);
 
+        KafkaAvroSerializerConfig serializerConfig = new KafkaAvroSerializerConfig(additionalConfiguration);
+        close();
+        schemaRegistryClient = SchemaRegistryClientPool.shared()
+                .get(clientConfiguration(additionalConfiguration), () -> createSchemaRegistryClient(serializerConfig));
+        metrics = SerdeMetrics.forTopicAndClass(topicName, className);
+        schemaCache = new SchemaCache(schemaRegistryClient,
+                longConfiguration(additionalConfiguration, SCHEMA_CACHE_MAX_SIZE_KEY, SCHEMA_CACHE_MAX_SIZE_DEFAULT),
+                longConfiguration(additionalConfiguration, SCHEMA_CACHE_TTL_MS_KEY, SCHEMA_CACHE_TTL_MS_DEFAULT),
+                longConfiguration(additionalConfiguration, SCHEMA_CACHE_NEGATIVE_TTL_MS_KEY, SCHEMA_CACHE_NEGATIVE_TTL_MS_DEFAULT),
+                metrics);
+        delegateValueSerializer = new KafkaAvroSerializer(schemaRegistryClient);
         delegateValueSerializer.configure(additionalConfiguration, false);
-        delegateValueDeserializer.configure(additionalConfiguration, false);
+
+        configureMaxDepth(additionalConfiguration);
+        configureSerializeMode(additionalConfiguration, serializerConfig);
+        configureDeserializeMode(additionalConfiguration);
+        configureDeserializationPool(additionalConfiguration);
+        configureSerializationExecutor(additionalConfiguration);
+        configureProjection(additionalConfiguration);
+        configureCompression(additionalConfiguration);
+        configureFailurePolicy(additionalConfiguration);
+        configureWarmUp(api, additionalConfiguration, serializerConfig);
+    }
+
+    /**
+     * Stops the threads of the asynchronous serialization executor without waiting for them to become idle. Pega doesn't
+     * close serdes, so nothing depends on this: the threads are daemon threads which stop after a minute without work,
+     * deserialization pools are shared by parallelism, and the schema registry client is shared through
+     * {@link SchemaRegistryClientPool}.
+     */
+    @Override
+    public void close() {
+        if (serializationExecutor != null) {
+            serializationExecutor.shutdown();
+        }
+    }
+
+    private static Map<String, Object> clientConfiguration(Map<?, ?> configuration) {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<?, ?> entry : configuration.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (!SERDE_CONFIGURATION_KEYS.contains(key)) {
+                result.put(key, entry.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates the client with the configuration the Confluent serializer would use, so it can be shared by the
+     * serializer, by other data sets with the same client configuration, and used to resolve the schema ID for direct
+     * serialization. The client doesn't keep schemas looked up by ID, which the {@link SchemaCache} of every data set
+     * does, see {@link UncachedIdSchemaRegistryClient}. A {@code file:} URL selects the {@link LocalSchemaRegistryClient}
+     * instead, and a {@code mock:} URL the mock registry of the Confluent factory.
+     */
+    private SchemaRegistryClient createSchemaRegistryClient(KafkaAvroSerializerConfig config) {
+        List<String> urls = config.getSchemaRegistryUrls();
+        if (urls.size() == 1 && LocalSchemaRegistryClient.isLocalUrl(urls.get(0))) {
+            return LocalSchemaRegistryClient.forUrl(urls.get(0));
+        }
+        if (urls.stream().anyMatch(url -> url.startsWith(MOCK_URL_PREFIX))) {
+            return SchemaRegistryClientFactory.newClient(urls, config.getMaxSchemasPerSubject(),
+                    Collections.singletonList(new AvroSchemaProvider()), config.originalsWithPrefix(""), config.requestHeaders());
+        }
+
+        return new UncachedIdSchemaRegistryClient(urls, config.getMaxSchemasPerSubject(),
+                Collections.singletonList(new AvroSchemaProvider()), config.originalsWithPrefix(""), config.requestHeaders());
+    }
+
+    private static long longConfiguration(Map configuration, String key, long defaultValue) {
+        Object value = configuration.get(key);
+        if (value == null || StringUtils.isBlank(value.toString())) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of '" + key + "' must be a number.", e);
+        }
+    }
+
+    private static boolean booleanConfiguration(Map configuration, String key) {
+        Object value = configuration.get(key);
+        return value != null && Boolean.parseBoolean(value.toString().trim());
+    }
+
+    private void configureMaxDepth(Map configuration) {
+        long maxDepth = longConfiguration(configuration, CONVERSION_MAX_DEPTH_KEY, NestingDepth.DEFAULT_MAX_DEPTH);
+        Preconditions.checkArgument(maxDepth >= 1 && maxDepth <= NestingDepth.MAX_DEPTH_LIMIT, "Value of '" + CONVERSION_MAX_DEPTH_KEY + "' must be between 1 and " + NestingDepth.MAX_DEPTH_LIMIT + ".");
+        createConverters((int) maxDepth);
+    }
+
+    /**
+     * Replaces the converters and with them the compiled plans, which are bound to the maximum depth they were compiled for.
+     */
+    private void createConverters(int maxDepth) {
+        clipboardPageToGenericRecordConverter = new ClipboardPageToGenericRecordConverter(maxDepth);
+        clipboardPageToAvroBinaryConverter = new ClipboardPageToAvroBinaryConverter(maxDepth);
+        genericRecordToClipboardPageConverter = new GenericRecordToClipboardPageConverter(maxDepth);
+        resolutionPlans = new ResolutionPlans(maxDepth);
+    }
+
+    private void configureSerializeMode(Map configuration, KafkaAvroSerializerConfig serializerConfig) {
+        Object serializeMode = configuration.get(SERIALIZE_MODE_KEY);
+        if (serializeMode == null || SERIALIZE_MODE_RECORD.equals(serializeMode.toString())) {
+            directSerialization = false;
+            return;
+        }
+
+        Preconditions.checkArgument(SERIALIZE_MODE_DIRECT.equals(serializeMode.toString()), "Serialize mode must be either '" + SERIALIZE_MODE_RECORD + "' or '" + SERIALIZE_MODE_DIRECT + "'.");
+        Preconditions.checkArgument(schema != null, "Avro schema must be configured for '" + SERIALIZE_MODE_DIRECT + "' serialize mode.");
+        if (serializerConfig.useLatestVersion()) {
+            LOGGER.warn("Direct serialization doesn't support using the latest schema version, record serialization will be used.");
+            directSerialization = false;
+            return;
+        }
+
+        schemaId = resolveSchemaId(serializerConfig.autoRegisterSchema(), (SubjectNameStrategy) serializerConfig.valueSubjectNameStrategy());
+        directSerialization = true;
+    }
+
+    private void configureDeserializeMode(Map configuration) {
+        Object deserializeMode = configuration.get(DESERIALIZE_MODE_KEY);
+        String mode = deserializeMode == null ? DESERIALIZE_MODE_RECORD : deserializeMode.toString();
+        Preconditions.checkArgument(DESERIALIZE_MODE_RECORD.equals(mode) || DESERIALIZE_MODE_DIRECT.equals(mode), "Deserialize mode must be either '" + DESERIALIZE_MODE_RECORD + "' or '" + DESERIALIZE_MODE_DIRECT + "'.");
+        directDeserialization = DESERIALIZE_MODE_DIRECT.equals(mode);
+    }
+
+    private void configureDeserializationPool(Map configuration) {
+        long parallelism = longConfiguration(configuration, DESERIALIZE_PARALLELISM_KEY, 0);
+        Preconditions.checkArgument(parallelism >= 0 && parallelism <= MAX_DESERIALIZE_PARALLELISM, "Value of '" + DESERIALIZE_PARALLELISM_KEY + "' must be between 0 and " + MAX_DESERIALIZE_PARALLELISM + ".");
+        deserializationPool = parallelism == 0 ? ForkJoinPool.commonPool()
+                : DESERIALIZATION_POOLS.computeIfAbsent((int) parallelism, AvroSchemaRegistrySerde::newDeserializationPool);
+    }
+
+    /**
+     * Pools are shared by all instances with the same parallelism and never shut down, so configuring data sets again
+     * doesn't leave pools behind. Their worker threads are daemon threads which stop when the pool is idle.
+     */
+    private static ForkJoinPool newDeserializationPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("avro-deserialize-" + parallelism + "-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    private void configureSerializationExecutor(Map configuration) {
+        long threads = longConfiguration(configuration, SERIALIZE_ASYNC_THREADS_KEY, defaultSerializeAsyncThreads());
+        long queueSize = longConfiguration(configuration, SERIALIZE_ASYNC_QUEUE_SIZE_KEY, SERIALIZE_ASYNC_QUEUE_SIZE_DEFAULT);
+        Preconditions.checkArgument(threads > 0 && threads <= MAX_SERIALIZE_ASYNC_THREADS, "Value of '" + SERIALIZE_ASYNC_THREADS_KEY + "' must be between 1 and " + MAX_SERIALIZE_ASYNC_THREADS + ".");
+        Preconditions.checkArgument(queueSize > 0 && queueSize <= Integer.MAX_VALUE, "Value of '" + SERIALIZE_ASYNC_QUEUE_SIZE_KEY + "' must be positive.");
+        serializationExecutor = newSerializationExecutor((int) threads, (int) queueSize);
+    }
+
+    private static int defaultSerializeAsyncThreads() {
+        return Math.min(Runtime.getRuntime().availableProcessors(), MAX_SERIALIZE_ASYNC_THREADS);
+    }
+
+    /**
+     * Threads are started on the first asynchronous serialization and stop after a minute without work. Pages which
+     * don't fit into the queue are serialized on the calling thread, also after the executor is shut down.
+     */
+    private ThreadPoolExecutor newSerializationExecutor(int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, SERIALIZE_ASYNC_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("avro-serialize-" + topicName + "-%d").setDaemon(true).build(),
+                (task, rejectingExecutor) -> task.run());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private void configureProjection(Map configuration) {
+        Object projectionFields = configuration.get(PROJECTION_FIELDS_KEY);
+        List<String> fieldNames = projectionFields == null ? Collections.emptyList()
+                : Splitter.on(',').trimResults().omitEmptyStrings().splitToList(projectionFields.toString());
+        projection = fieldNames.isEmpty() ? null : new SchemaProjection(new HashSet<>(fieldNames));
+    }
+
+    private void configureCompression(Map configuration) {
+        Object compressionMode = configuration.get(PAYLOAD_COMPRESSION_KEY);
+        String mode = compressionMode == null ? PAYLOAD_COMPRESSION_NONE : compressionMode.toString();
+        Preconditions.checkArgument(PAYLOAD_COMPRESSION_NONE.equals(mode) || PAYLOAD_COMPRESSION_ZSTD_DICTIONARY.equals(mode),
+                "Payload compression must be either '" + PAYLOAD_COMPRESSION_NONE + "' or '" + PAYLOAD_COMPRESSION_ZSTD_DICTIONARY + "'.");
+        long maxMessageSize = longConfiguration(configuration, PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_KEY, PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_DEFAULT);
+        Preconditions.checkArgument(maxMessageSize > ZstdDictionaryCompression.HEADER_SIZE_WITH_DICTIONARY && maxMessageSize <= Integer.MAX_VALUE,
+                "Value of '" + PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_KEY + "' is out of range.");
+        if (PAYLOAD_COMPRESSION_NONE.equals(mode)) {
+            compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, topicName, (int) maxMessageSize);
+            return;
+        }
+
+        Preconditions.checkArgument(ZstdDictionaryCompression.isZstdAvailable(), "Payload compression '" + mode
+                + "' needs zstd-jni from the Kafka client of the platform, which couldn't be loaded or lacks methods it uses, see the log.");
+        boolean register = booleanConfiguration(configuration, PAYLOAD_COMPRESSION_REGISTER_KEY);
+        long samples = longConfiguration(configuration, PAYLOAD_COMPRESSION_SAMPLES_KEY, PAYLOAD_COMPRESSION_SAMPLES_DEFAULT);
+        long dictionarySize = longConfiguration(configuration, PAYLOAD_COMPRESSION_DICTIONARY_SIZE_KEY, PAYLOAD_COMPRESSION_DICTIONARY_SIZE_DEFAULT);
+        long level = longConfiguration(configuration, PAYLOAD_COMPRESSION_LEVEL_KEY, ZstdDictionaryCompression.DEFAULT_LEVEL);
+        Preconditions.checkArgument(samples > 0 && samples <= Integer.MAX_VALUE, "Value of '" + PAYLOAD_COMPRESSION_SAMPLES_KEY + "' must be positive.");
+        Preconditions.checkArgument(dictionarySize > 0 && dictionarySize <= Integer.MAX_VALUE / 100, "Value of '" + PAYLOAD_COMPRESSION_DICTIONARY_SIZE_KEY + "' is out of range.");
+        Preconditions.checkArgument(level >= 1 && level <= 22, "Value of '" + PAYLOAD_COMPRESSION_LEVEL_KEY + "' must be between 1 and 22.");
+        compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, topicName, (int) maxMessageSize, (int) level,
+                register ? (int) samples : 0, (int) dictionarySize, ForkJoinPool.commonPool(), ZstdDictionaryCompression.sharedRegistryExecutor());
+    }
+
+    /**
+     * The platform calls {@link #serialize} and {@link #deserialize} for single records and can't be told to drop one,
+     * so the skip and quarantine policies are only accepted for data sets which declare that they use the batch APIs.
+     */
+    private void configureFailurePolicy(Map configuration) {
+        failurePolicy = FailurePolicy.fromConfiguration(configuration.get(FAILURE_POLICY_KEY));
+        Preconditions.checkArgument(failurePolicy == FailurePolicy.FAIL || booleanConfiguration(configuration, BATCH_API_KEY),
+                "The '" + failurePolicy.configurationValue() + "' failure policy only takes effect through serializeBatch and deserializeBatch, '"
+                        + BATCH_API_KEY + "' must be 'true' to use it.");
+        Object sinkClassName = configuration.get(DEAD_LETTER_SINK_CLASS_KEY);
+        if (failurePolicy != FailurePolicy.QUARANTINE) {
+            deadLetterSink = null;
+            return;
+        }
+
+        Preconditions.checkArgument(sinkClassName != null && StringUtils.isNotBlank(sinkClassName.toString()),
+                "Dead letter sink must be configured via '" + DEAD_LETTER_SINK_CLASS_KEY + "' parameter for the '" + failurePolicy.configurationValue() + "' failure policy.");
+        try {
+            deadLetterSink = Class.forName(sinkClassName.toString().trim(), true, AvroSchemaRegistrySerde.class.getClassLoader())
+                    .asSubclass(DeadLetterSink.class).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Dead letter sink '" + sinkClassName + "' couldn't be created.", e);
+        }
+    }
+
+    private void configureWarmUp(PublicAPI api, Map configuration, KafkaAvroSerializerConfig serializerConfig) {
+        long schemaVersions = longConfiguration(configuration, WARMUP_SCHEMA_VERSIONS_KEY, 0);
+        long iterations = longConfiguration(configuration, WARMUP_ITERATIONS_KEY, 0);
+        Preconditions.checkArgument(schemaVersions >= 0 && schemaVersions <= Integer.MAX_VALUE, "Value of '" + WARMUP_SCHEMA_VERSIONS_KEY + "' must not be negative.");
+        Preconditions.checkArgument(iterations >= 0 && iterations <= Integer.MAX_VALUE, "Value of '" + WARMUP_ITERATIONS_KEY + "' must not be negative.");
+        if (schemaVersions > 0 || iterations > 0) {
+            warmUp(api, (SubjectNameStrategy) serializerConfig.valueSubjectNameStrategy(), (int) schemaVersions, (int) iterations);
+        }
+    }
+
+    /**
+     * Looks up the ID of the configured schema and fetches the latest writer schemas of the subject, and then converts
+     * records generated from those schemas in both directions, so the registry lookups, the compiled plans and the JIT
+     * compiled conversion paths are in place before the first real message. Warm-up never registers a schema, so pages
+     * are encoded without the Confluent serializer, which would register it with {@code auto.register.schemas}.
+     * Warm-up conversions and lookups aren't recorded in the metrics, and a failing warm-up only leaves the remaining
+     * work to the first messages.
+     */
+    private void warmUp(PublicAPI api, SubjectNameStrategy subjectNameStrategy, int schemaVersions, int iterations) {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, Schema> writerSchemas = prefetchSchemas(subjectNameStrategy, schemaVersions);
+            for (int i = 0; i < iterations; i++) {
+                for (Map.Entry<Integer, Schema> writerSchema : writerSchemas.entrySet()) {
+                    decodeInto(api.createPage(className, ""), syntheticMessage(writerSchema.getKey(), writerSchema.getValue(), i));
+                }
+                if (schema != null) {
+                    ClipboardPage clipboardPage = api.createPage(className, "");
+                    genericRecordToClipboardPageConverter.populateClipboardPage(clipboardPage, SyntheticRecords.generate(schema, i));
+                    warmUpEncoding(clipboardPage);
+                }
+            }
+            LOGGER.info("Warm-up for topic '{}' with {} schemas and {} iterations took {} ms.", topicName, writerSchemas.size(), iterations,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Warm-up for topic '" + topicName + "' has failed, the remaining work is left to the first messages.", e);
+        }
+    }
+
+    /**
+     * The configured schema is only warmed up for deserialization when it is registered already.
+     */
+    private Map<Integer, Schema> prefetchSchemas(SubjectNameStrategy subjectNameStrategy, int schemaVersions) {
+        Map<Integer, Schema> writerSchemas = new LinkedHashMap<>();
+        String subject = subjectNameStrategy.subjectName(topicName, false, schema == null ? null : new AvroSchema(schema));
+        if (schema != null) {
+            try {
+                int configuredSchemaId = directSerialization ? schemaId : schemaRegistryClient.getId(subject, new AvroSchema(schema));
+                writerSchemas.put(configuredSchemaId, schemaCache.prefetch(configuredSchemaId));
+            } catch (RestClientException e) {
+                if (e.getStatus() == NOT_FOUND) {
+                    LOGGER.info("Schema of topic '{}' isn't registered for subject '{}' yet, it is left out of the warm-up.", topicName, subject);
+                } else {
+                    LOGGER.warn("Schema ID couldn't be looked up during warm-up for topic '" + topicName + "'.", e);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Schema ID couldn't be looked up during warm-up for topic '" + topicName + "'.", e);
+            }
+        }
+        if (schemaVersions == 0) {
+            return writerSchemas;
+        }
+
+        try {
+            writerSchemas.putAll(schemaCache.prefetchLatestVersions(subject, schemaVersions));
+        } catch (IOException | RestClientException e) {
+            LOGGER.warn("Schemas of subject '" + subject + "' couldn't be fetched during warm-up.", e);
+        }
+
+        return writerSchemas;
+    }
+
+    /**
+     * Runs the conversion of the serialize mode, and encodes the record like the Confluent serializer does, but
+     * without resolving the schema ID.
+     */
+    private void warmUpEncoding(ClipboardPage clipboardPage) {
+        if (directSerialization) {
+            clipboardPageToAvroBinaryConverter.convertClipboardPageToAvroBinary(clipboardPage, schema, schemaId);
+            return;
+        }
+
+        GenericRecord record = clipboardPageToGenericRecordConverter.convertClipboardPageToGenericRecord(clipboardPage, schema);
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(new ReusableByteArrayOutputStream(256), null);
+            new GenericDatumWriter<GenericRecord>(schema).write(record, encoder);
+        } catch (IOException e) {
+            throw new AvroSerdeException("Warm-up record of " + schema.getFullName() + " couldn't be encoded.", e);
+        }
+    }
+
+    private static byte[] syntheticMessage(int schemaId, Schema writerSchema, int variant) {
+        ReusableByteArrayOutputStream output = new ReusableByteArrayOutputStream(256);
+        writeHeader(output, schemaId);
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(output, null);
+            new GenericDatumWriter<GenericRecord>(writerSchema).write(SyntheticRecords.generate(writerSchema, variant), encoder);
+        } catch (IOException e) {
+            throw new AvroSerdeException("Synthetic record of " + writerSchema.getFullName() + " couldn't be encoded.", e);
+        }
+
+        return output.toByteArray();
+    }
+
+    private int resolveSchemaId(boolean autoRegisterSchema, SubjectNameStrategy subjectNameStrategy) {
+        AvroSchema avroSchema = new AvroSchema(schema);
+        String subject = subjectNameStrategy.subjectName(topicName, false, avroSchema);
+        long start = System.nanoTime();
+        try {
+            return autoRegisterSchema ? schemaRegistryClient.register(subject, avroSchema) : schemaRegistryClient.getId(subject, avroSchema);
+        } catch (IOException | RestClientException e) {
+            throw new AvroSerdeException("Schema ID couldn't be resolved for subject '" + subject + "'", e);
+        } finally {
+            metrics.registryFetched(System.nanoTime() - start);
+        }
     }
 
     private void validate(Map<String, ?> configuration) {
@@ -120,53 +598,425 @@ public class AvroSchemaRegistrySerde implements PegaSerde {
         return schemaRegistryConfiguration;
     }
 
-    private Map resolveSchemaRegistryConfiguration(ClipboardPage schemaRegistryConfiguration) {
-        Map<String, String> result = new HashMap<>();
-        String url = validateUrl(schemaRegistryConfiguration.getString("URL"));
-        result.put(SCHEMA_REGISTRY_URL_CONFIG, url);
+    /**
+     * Parsed configurations are cached on the node until the instance is updated, see
+     * {@link SchemaRegistryConfigurationCache}.
+     */
+    private Map resolveSchemaRegistryConfiguration(String configName, ClipboardPage schemaRegistryConfiguration) {
+        SchemaRegistryConfiguration parsedConfiguration = SchemaRegistryConfigurationCache.shared().get(configName, schemaRegistryConfiguration);
+        if (parsedConfiguration.getSchema() != null) {
+            schema = parsedConfiguration.getSchema();
+        }
+        useSchemaEvolution = parsedConfiguration.useSchemaEvolution();
+
+        return new HashMap<>(parsedConfiguration.getClientConfiguration());
+    }
+
+    /**
+     * @return the message.
+     * @throws AvroSerdeException when the page couldn't be serialized, whatever the failure policy, which only takes
+     *                            effect through {@link #serializeBatch}.
+     * @throws SchemaRegistryException when the schema registry has failed.
+     */
+    @Override
+    public byte[] serialize(PublicAPI api, ClipboardPage clipboardPage) {
+        long start = System.nanoTime();
+        byte[] data;
+        try {
+            data = compression.compress(encode(clipboardPage));
+        } catch (SchemaRegistryException e) {
+            throw e;
+        } catch (AvroSerdeException e) {
+            throw serializeFailed(e);
+        }
+        metrics.serialized(data.length, System.nanoTime() - start);
+
+        return data;
+    }
 
-        String encodedSchemaContent = schemaRegistryConfiguration.getString("SchemaContent");
-        if (isNotBlank(encodedSchemaContent)) {
-            schema = parseSchemaContent(encodedSchemaContent);
+    /**
+     * Serializes a page on the serialization executor, so the caller can send the previous message while this page is
+     * encoded. The page is read into a record on the calling thread, which owns the {@link PublicAPI} and its
+     * clipboard, in every serialize mode, and only encoding and compression run on the executor. When all threads are
+     * busy and the queue is full, the record is encoded on the calling thread and the returned future is already
+     * complete, which keeps callers from getting ahead of the executor by more than the queue size. Binary values may be
+     * shared between page and record, so the page must not be changed until the future is complete. Failures complete
+     * the future exceptionally as in {@link #serialize}.
+     */
+    public CompletableFuture<byte[]> serializeAsync(PublicAPI api, ClipboardPage clipboardPage) {
+        long start = System.nanoTime();
+        GenericRecord record;
+        try {
+            record = convert(clipboardPage);
+        } catch (AvroSerdeException e) {
+            CompletableFuture<byte[]> result = new CompletableFuture<>();
+            result.completeExceptionally(serializeFailed(e));
+            return result;
         }
+        long conversionNanos = System.nanoTime() - start;
 
-        useSchemaEvolution = schemaRegistryConfiguration.getBoolean("UseSchemaEvolution");
+        return CompletableFuture.supplyAsync(() -> {
+            long encodingStart = System.nanoTime();
+            byte[] data;
+            try {
+                data = compression.compress(encodeRecord(record));
+            } catch (SchemaRegistryException e) {
+                throw e;
+            } catch (AvroSerdeException e) {
+                throw serializeFailed(e);
+            }
+            metrics.serialized(data.length, conversionNanos + System.nanoTime() - encodingStart);
+
+            return data;
+        }, serializationExecutor);
+    }
 
-        String authSource = schemaRegistryConfiguration.getString("AuthenticationSource");
-        if (StringUtils.isNotBlank(authSource)) {
-            result.put(BASIC_AUTH_CREDENTIALS_SOURCE, authSource);
-            result.put(USER_INFO_CONFIG, schemaRegistryConfiguration.getString("UserInfo"));
+    private byte[] encode(ClipboardPage clipboardPage) {
+        byte[] data = null;
+        if (directSerialization) {
+            try {
+                data = clipboardPageToAvroBinaryConverter.convertClipboardPageToAvroBinary(clipboardPage, schema, schemaId);
+            } catch (Exception e) {
+                // Pages the direct encoding can't handle go through GenericRecord, which reports the actual error.
+                LOGGER.debug("Direct encoding of ClipboardPage has failed, converting it to GenericRecord.", e);
+            }
         }
 
-        ClipboardProperty configs = schemaRegistryConfiguration.getProperty("AdditionalConfigurations");
-        for (int i = 1; i <= configs.size(); i++) {
-            result.put(configs.getStringValue(i, "pyKey"), configs.getStringValue(i, "pyValue"));
+        if (data == null) {
+            data = serializeRecord(clipboardPage);
+        }
+
+        return data;
+    }
+
+    /**
+     * Serializes a batch of pages on the calling thread. The schema is resolved once and, in direct serialize mode,
+     * all pages are encoded with the same encoder and output buffer. A page which fails to serialize is reported in
+     * the result by its index and doesn't abort the rest of the batch, whatever the failure policy, and is also
+     * quarantined with the {@link FailurePolicy#QUARANTINE} policy. A failure of the schema registry aborts the batch.
+     */
+    public BatchResult<byte[]> serializeBatch(PublicAPI api, List<ClipboardPage> clipboardPages) {
+        BatchResult<byte[]> result = new BatchResult<>(clipboardPages.size());
+        BatchEncoder batchEncoder = directSerialization ? clipboardPageToAvroBinaryConverter.newBatchEncoder(schema, schemaId) : null;
+
+        for (int i = 0; i < clipboardPages.size(); i++) {
+            ClipboardPage clipboardPage = clipboardPages.get(i);
+            long start = System.nanoTime();
+            byte[] data = null;
+            if (batchEncoder != null) {
+                try {
+                    data = batchEncoder.encode(clipboardPage);
+                } catch (Exception e) {
+                    LOGGER.debug("Direct encoding of ClipboardPage has failed, converting it to GenericRecord.", e);
+                }
+            }
+
+            try {
+                if (data == null) {
+                    data = serializeRecord(clipboardPage);
+                }
+                data = compression.compress(data);
+                metrics.serialized(data.length, System.nanoTime() - start);
+                result.succeeded(i, data);
+            } catch (SchemaRegistryException e) {
+                throw e;
+            } catch (AvroSerdeException e) {
+                applyFailurePolicy(clipboardPage, e);
+                result.failed(i, e);
+            }
         }
 
         return result;
     }
 
-    @Override
-    public byte[] serialize(PublicAPI api, ClipboardPage clipboardPage) {
-        GenericRecord record;
+    private byte[] serializeRecord(ClipboardPage clipboardPage) {
+        return encodeRecord(convert(clipboardPage));
+    }
+
+    private GenericRecord convert(ClipboardPage clipboardPage) {
+        try {
+            return clipboardPageToGenericRecordConverter.convertClipboardPageToGenericRecord(clipboardPage, schema);
+        } catch (Exception e) {
+            metrics.serializeFailed(e);
+            throw new AvroSerdeException(e);
+        }
+    }
+
+    /**
+     * The Confluent serializer looks up or registers the schema, so failures caused by the registry rather than the
+     * record are told apart by their cause: the registry refused a request or couldn't be reached, or rejected the
+     * credentials, which the serializer reports without a cause.
+     */
+    private byte[] encodeRecord(GenericRecord record) {
         try {
-            record = clipboardPageToGenericRecordConverter.convertClipboardPageToGenericRecord(clipboardPage, schema);
             return delegateValueSerializer.serialize(topicName, record);
         } catch (Exception e) {
-            LOGGER.error("Conversion of ClipboardPage to GenericRecord has failed.", e);
+            metrics.serializeFailed(e);
+            if (!(e instanceof SerializationException) && e instanceof KafkaException
+                    || causedBy(e, RestClientException.class) || causedBy(e, IOException.class)) {
+                throw new SchemaRegistryException("Avro schema for topic '" + topicName + "' couldn't be looked up or registered.", e);
+            }
             throw new AvroSerdeException(e);
         }
     }
 
+    /**
+     * Logs the failure, at most once per interval for all records of this serde.
+     *
+     * @return the failure.
+     */
+    private AvroSerdeException serializeFailed(AvroSerdeException failure) {
+        failureLogger.error("Serialization of ClipboardPage for topic '" + topicName + "' has failed.", failure);
+        return failure;
+    }
+
+    private RuntimeException deserializeFailed(RuntimeException failure) {
+        failureLogger.error("Deserialization of message from topic '" + topicName + "' has failed.", failure);
+        return failure;
+    }
+
+    /**
+     * Logs the failure of a record of a batch and applies the failure policy.
+     */
+    private void applyFailurePolicy(ClipboardPage clipboardPage, AvroSerdeException failure) {
+        serializeFailed(failure);
+        if (failurePolicy == FailurePolicy.QUARANTINE) {
+            quarantine(() -> deadLetterSink.serializeFailed(topicName, clipboardPage, failure));
+        } else if (failurePolicy == FailurePolicy.SKIP) {
+            metrics.skipped();
+        }
+    }
+
+    private void applyFailurePolicy(byte[] message, RuntimeException failure) {
+        deserializeFailed(failure);
+        if (failurePolicy == FailurePolicy.QUARANTINE) {
+            quarantine(() -> deadLetterSink.deserializeFailed(topicName, message, failure));
+        } else if (failurePolicy == FailurePolicy.SKIP) {
+            metrics.skipped();
+        }
+    }
+
+    private void quarantine(Runnable sinkCall) {
+        try {
+            sinkCall.run();
+            metrics.quarantined();
+        } catch (RuntimeException e) {
+            failureLogger.warn("Dead letter sink of topic '" + topicName + "' has failed, the record is dropped.", e);
+            metrics.skipped();
+        }
+    }
+
+    /**
+     * @return the page.
+     * @throws RuntimeException when the message couldn't be deserialized, whatever the failure policy, which only takes
+     *                          effect through {@link #deserializeBatch}.
+     * @throws SchemaRegistryException when the schema registry has failed.
+     */
     public ClipboardPage deserialize(PublicAPI api, byte[] data) {
-        GenericRecord record;
-        if (useSchemaEvolution) {
-            record = (GenericRecord) delegateValueDeserializer.deserialize(topicName, data, schema);
-        } else {
-            record = (GenericRecord) delegateValueDeserializer.deserialize(topicName, data);
+        ClipboardPage clipboardPage = api.createPage(className, "");
+        try {
+            deserializeInto(clipboardPage, data);
+        } catch (SchemaRegistryException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw deserializeFailed(e);
+        }
+
+        return clipboardPage;
+    }
+
+    /**
+     * Deserializes a batch of messages and returns the pages in input order. Large batches are decoded into records on
+     * the deserialization fork-join pool, while pages are created and populated on the calling thread, which owns the
+     * {@link PublicAPI} and its clipboard. A message which fails to deserialize is reported in the result by its index
+     * and doesn't abort the rest of the batch, whatever the failure policy, and is also quarantined with the
+     * {@link FailurePolicy#QUARANTINE} policy. A failure of the schema registry aborts the batch.
+     */
+    public BatchResult<ClipboardPage> deserializeBatch(PublicAPI api, List<byte[]> messages) {
+        BatchResult<ClipboardPage> result = new BatchResult<>(messages.size());
+        if (messages.size() <= DESERIALIZE_BATCH_SPLIT_SIZE) {
+            for (int i = 0; i < messages.size(); i++) {
+                try {
+                    ClipboardPage clipboardPage = api.createPage(className, "");
+                    deserializeInto(clipboardPage, messages.get(i));
+                    result.succeeded(i, clipboardPage);
+                } catch (SchemaRegistryException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    applyFailurePolicy(messages.get(i), e);
+                    result.failed(i, e);
+                }
+            }
+            return result;
+        }
+
+        GenericRecord[] records = new GenericRecord[messages.size()];
+        RuntimeException[] decodeFailures = new RuntimeException[messages.size()];
+        long[] decodeNanos = new long[messages.size()];
+        deserializationPool.invoke(new DecodeRangeTask(0, messages.size(), i -> {
+            long start = System.nanoTime();
+            try {
+                records[i] = decodeRecord(compression.decompress(messages.get(i)));
+            } catch (RuntimeException e) {
+                decodeFailures[i] = e;
+            }
+            decodeNanos[i] = System.nanoTime() - start;
+        }));
+
+        for (int i = 0; i < records.length; i++) {
+            byte[] message = messages.get(i);
+            try {
+                if (decodeFailures[i] != null) {
+                    throw decodeFailures[i];
+                }
+                ClipboardPage clipboardPage = api.createPage(className, "");
+                long start = System.nanoTime();
+                genericRecordToClipboardPageConverter.populateClipboardPage(clipboardPage, records[i]);
+                metrics.deserialized(message.length, decodeNanos[i] + System.nanoTime() - start);
+                result.succeeded(i, clipboardPage);
+            } catch (SchemaRegistryException e) {
+                metrics.deserializeFailed(e);
+                throw e;
+            } catch (RuntimeException e) {
+                metrics.deserializeFailed(e);
+                applyFailurePolicy(message, e);
+                result.failed(i, e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Messages compressed with a dictionary are decompressed first, see {@link ZstdDictionaryCompression}.
+     */
+    private void deserializeInto(ClipboardPage clipboardPage, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            decodeInto(clipboardPage, compression.decompress(data));
+        } catch (RuntimeException e) {
+            metrics.deserializeFailed(e);
+            throw e;
+        }
+        metrics.deserialized(data.length, System.nanoTime() - start);
+    }
+
+    private void decodeInto(ClipboardPage clipboardPage, byte[] data) {
+        if (directDeserialization) {
+            deserializeDirectly(clipboardPage, data);
+            return;
         }
 
-        return genericRecordToClipboardPageConverter.convertGenericRecordToClipboardPage(api, record, className);
+        genericRecordToClipboardPageConverter.populateClipboardPage(clipboardPage, decodeRecord(data));
+    }
+
+    /**
+     * Decodes a message into a record without touching the clipboard, so it can run on any thread. The message is read
+     * with the writer schema from the schema cache, rather than by the Confluent deserializer which would keep every
+     * schema it has looked up in the registry client, and resolved by the same rules as {@link #deserializeDirectly}.
+     */
+    private GenericRecord decodeRecord(byte[] data) {
+        int schemaId = messageSchemaId(data);
+        try {
+            return avroBinaryToClipboardPageConverter.decodeAvroBinaryToGenericRecord(data, resolutionPlan(schemaId));
+        } catch (AvroSerdeException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error deserializing Avro message for id " + schemaId, e);
+        }
+    }
+
+    private void deserializeDirectly(ClipboardPage clipboardPage, byte[] data) {
+        int schemaId = messageSchemaId(data);
+        try {
+            avroBinaryToClipboardPageConverter.decodeAvroBinaryIntoClipboardPage(clipboardPage, data, resolutionPlan(schemaId));
+        } catch (AvroSerdeException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error deserializing Avro message for id " + schemaId, e);
+        }
+    }
+
+    private ResolutionPlan resolutionPlan(int schemaId) {
+        Schema writerSchema = writerSchemaOf(schemaId);
+        Schema readerSchema = useSchemaEvolution && schema != null ? schema : writerSchema;
+        if (projection != null) {
+            readerSchema = projection.apply(readerSchema);
+        }
+
+        return resolutionPlans.get(schemaId, writerSchema, readerSchema);
+    }
+
+    private static int messageSchemaId(byte[] data) {
+        try {
+            return readSchemaId(data);
+        } catch (AvroSerdeException e) {
+            throw new SerializationException(e.getMessage());
+        }
+    }
+
+    /**
+     * @throws SerializationException  when the schema ID isn't registered, i.e. the message is bad.
+     * @throws SchemaRegistryException when the registry couldn't be asked.
+     */
+    private Schema writerSchemaOf(int schemaId) {
+        try {
+            return schemaCache.getById(schemaId);
+        } catch (RestClientException e) {
+            if (e.getStatus() == NOT_FOUND) {
+                throw new SerializationException("Error retrieving Avro schema for id " + schemaId, e);
+            }
+            throw new SchemaRegistryException("Avro schema for id " + schemaId + " couldn't be retrieved from the schema registry.", e);
+        } catch (IOException e) {
+            throw new SchemaRegistryException("Avro schema for id " + schemaId + " couldn't be retrieved from the schema registry.", e);
+        }
+    }
+
+    private static boolean causedBy(Throwable failure, Class<? extends Throwable> causeType) {
+        for (Throwable cause : Throwables.getCausalChain(failure)) {
+            if (causeType.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class DecodeRangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer decodeMessage;
+
+        private DecodeRangeTask(int from, int to, IntConsumer decodeMessage) {
+            this.from = from;
+            this.to = to;
+            this.decodeMessage = decodeMessage;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= DESERIALIZE_BATCH_SPLIT_SIZE) {
+                for (int i = from; i < to; i++) {
+                    decodeMessage.accept(i);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new DecodeRangeTask(from, middle, decodeMessage), new DecodeRangeTask(middle, to, decodeMessage));
+        }
+    }
+
+    public CacheStats getSchemaCacheStats() {
+        return schemaCache.getStats();
+    }
+
+    public SerdeMetrics getMetrics() {
+        return metrics;
+    }
+
+    @VisibleForTesting
+    protected SchemaRegistryClient getSchemaRegistryClient() {
+        return schemaRegistryClient;
     }
 
     @VisibleForTesting
@@ -183,4 +1033,49 @@ public class AvroSchemaRegistrySerde implements PegaSerde {
     protected void useSchemaEvolution(boolean useSchemaEvolution) {
         this.useSchemaEvolution = useSchemaEvolution;
     }
+
+    @VisibleForTesting
+    protected void useDirectDeserialization(boolean directDeserialization) {
+        this.directDeserialization = directDeserialization;
+    }
+
+    @VisibleForTesting
+    protected void useProjection(Set<String> fieldNames) {
+        this.projection = new SchemaProjection(fieldNames);
+    }
+
+    @VisibleForTesting
+    protected void useDeserializationPool(ForkJoinPool deserializationPool) {
+        this.deserializationPool = deserializationPool;
+    }
+
+    @VisibleForTesting
+    protected void useFailurePolicy(FailurePolicy failurePolicy, DeadLetterSink deadLetterSink) {
+        this.failurePolicy = failurePolicy;
+        this.deadLetterSink = deadLetterSink;
+    }
+
+    @VisibleForTesting
+    protected void useSerializationExecutor(int threads, int queueSize) {
+        this.serializationExecutor = newSerializationExecutor(threads, queueSize);
+    }
+
+    @VisibleForTesting
+    protected void useCompression(int samples, int dictionarySize, Executor backgroundExecutor) {
+        this.compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, topicName, (int) PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_DEFAULT,
+                ZstdDictionaryCompression.DEFAULT_LEVEL, samples, dictionarySize, backgroundExecutor, backgroundExecutor);
+    }
+
+    @VisibleForTesting
+    protected void warmUp(PublicAPI api, int schemaVersions, int iterations) {
+        warmUp(api, new TopicNameStrategy(), schemaVersions, iterations);
+    }
+
+    @VisibleForTesting
+    protected void useDirectSerialization(boolean directSerialization) {
+        if (directSerialization) {
+            schemaId = resolveSchemaId(true, new TopicNameStrategy());
+        }
+        this.directSerialization = directSerialization;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.pega.integration.kafka;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of converting a batch of messages, in the order of the input.
+ * <p>
+ * Records which couldn't be converted have no value and are reported by their index in the batch, so a single bad
+ * record doesn't abort the whole batch. Each index is written once, by a single thread, before the result is returned.
+ */
+public class BatchResult<T> {
+    private final Object[] values;
+    private final Exception[] failures;
+
+    BatchResult(int size) {
+        this.values = new Object[size];
+        this.failures = new Exception[size];
+    }
+
+    void succeeded(int index, T value) {
+        values[index] = value;
+        failures[index] = null;
+    }
+
+    void failed(int index, Exception failure) {
+        values[index] = null;
+        failures[index] = failure;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the converted value at the given index, or {@code null} if the record at that index has failed.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * @return the converted values in input order, with {@code null} in place of the failed records.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getValues() {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(values));
+    }
+
+    public boolean isFailed(int index) {
+        return failures[index] != null;
+    }
+
+    public boolean hasFailures() {
+        for (Exception failure : failures) {
+            if (failure != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the failures by index of the record in the batch, in ascending index order.
+     */
+    public Map<Integer, Exception> getFailures() {
+        Map<Integer, Exception> result = new TreeMap<>();
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                result.put(i, failures[i]);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,478 @@
+package com.pega.integration.kafka.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.exception.SchemaRegistryException;
+import com.pega.integration.kafka.registry.SchemaCache;
+import com.pega.integration.kafka.util.ConfluentWireFormat;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.avro.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.pega.integration.kafka.util.ConfluentWireFormat.HEADER_SIZE;
+import static com.pega.integration.kafka.util.ConfluentWireFormat.ID_SIZE;
+
+/**
+ * Compression of messages in the Confluent wire format with a zstd dictionary per schema ID.
+ * <p>
+ * Small Avro payloads are too short for zstd to find repetitions in, so messages are compressed with a dictionary per
+ * schema ID. On the first message of a schema ID the latest dictionary registered for it is looked up in the
+ * background and used when there is one. Otherwise, when training is enabled, the first messages of the schema ID are
+ * sent uncompressed and sampled, and once enough samples are collected a dictionary is trained from them in the
+ * background and registered. All later messages of the schema ID are compressed with the dictionary. A compressed
+ * message starts with the {@link #MAGIC_BYTE} magic byte, followed by the schema ID and the dictionary ID as 4-byte
+ * big-endian integers, followed by the zstd frame of the Avro payload. Messages which don't get smaller, or are larger
+ * than the maximum message size, are sent uncompressed.
+ * <p>
+ * Dictionaries are stored in the schema registry, so every consumer can look them up by the ID in the header. They are
+ * registered as Avro schemas carrying the dictionary in the {@value #DICTIONARY_PROPERTY} property, under the subject
+ * {@code <topic>-zstd-dictionary-<schema ID>}, so every trained dictionary is a new version of that subject and the
+ * dictionary ID is its registry ID. Since existing dictionaries are looked up first, all nodes and restarts share the
+ * dictionary the first node has registered, and nodes which don't train compress with it as well. Lookups and
+ * registrations block on the registry, so they run on the registry executor rather than the training executor.
+ * <p>
+ * Decompression doesn't need any configuration and is applied to compressed messages only, while messages in the
+ * Confluent wire format are passed through as they are. The payload size in the zstd frame is checked against the
+ * maximum message size before the message is allocated. The latest used decompression dictionaries are kept in memory.
+ * <p>
+ * zstd-jni isn't packaged with this component but provided by the Kafka client of the platform, see
+ * {@link #isZstdAvailable()}.
+ */
+public class ZstdDictionaryCompression {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZstdDictionaryCompression.class);
+
+    /**
+     * Not used by the Confluent wire format, which only knows the {@link ConfluentWireFormat#MAGIC_BYTE}.
+     */
+    public static final byte MAGIC_BYTE = 0x5A;
+    public static final int HEADER_SIZE_WITH_DICTIONARY = HEADER_SIZE + ID_SIZE;
+    public static final String SUBJECT_FORMAT = "%s-zstd-dictionary-%d";
+    public static final String SCHEMA_ID_PROPERTY = "schemaId";
+    public static final String DICTIONARY_PROPERTY = "dictionary";
+    public static final int DEFAULT_LEVEL = 3;
+
+    /**
+     * zstd recommends samples of about a hundred times the size of the dictionary.
+     */
+    private static final int SAMPLE_BUFFER_RATIO = 100;
+    private static final int MIN_DICTIONARY_SIZE = 256;
+    private static final int DECOMPRESSION_DICTIONARY_CACHE_SIZE = 64;
+    private static final int NOT_FOUND = 404;
+    private static final int REGISTRY_THREADS = 2;
+
+    /**
+     * Dictionaries are only looked up and registered once per schema ID, so all instances share these threads.
+     */
+    private static final Executor SHARED_REGISTRY_EXECUTOR = newRegistryExecutor();
+
+    private final SchemaRegistryClient schemaRegistryClient;
+    private final SchemaCache schemaCache;
+    private final String topicName;
+    private final int maxMessageSize;
+    private final boolean compressing;
+    private final int level;
+    private final int sampleCount;
+    private final int dictionarySize;
+    private final Executor trainingExecutor;
+    private final Executor registryExecutor;
+    private final Map<Integer, SchemaDictionary> schemaDictionaries = new ConcurrentHashMap<>();
+    private final Cache<Integer, ZstdDictDecompress> decompressionDictionaries = CacheBuilder.newBuilder()
+            .maximumSize(DECOMPRESSION_DICTIONARY_CACHE_SIZE)
+            .build();
+
+    /**
+     * Creates an instance which only decompresses messages.
+     *
+     * @param maxMessageSize maximum size of a decompressed message, in bytes.
+     */
+    public ZstdDictionaryCompression(SchemaRegistryClient schemaRegistryClient, SchemaCache schemaCache, String topicName,
+                                     int maxMessageSize) {
+        this(schemaRegistryClient, schemaCache, topicName, maxMessageSize, false, DEFAULT_LEVEL, 0, MIN_DICTIONARY_SIZE,
+                Runnable::run, Runnable::run);
+    }
+
+    /**
+     * Creates an instance which compresses messages with the dictionaries registered for their schema IDs.
+     *
+     * @param maxMessageSize   maximum size of a message, in bytes. Larger messages aren't compressed, and compressed
+     *                         messages which would be larger aren't decompressed.
+     * @param level            zstd compression level.
+     * @param sampleCount      number of messages of a schema ID a dictionary is trained from when none is registered, or
+     *                         0 to never train and register dictionaries.
+     * @param dictionarySize   maximum size of the trained dictionaries, in bytes.
+     * @param trainingExecutor runs the dictionary training, so it doesn't hold up the message which completes the
+     *                         samples.
+     * @param registryExecutor looks up and registers dictionaries, see {@link #sharedRegistryExecutor()}.
+     */
+    public ZstdDictionaryCompression(SchemaRegistryClient schemaRegistryClient, SchemaCache schemaCache, String topicName,
+                                     int maxMessageSize, int level, int sampleCount, int dictionarySize,
+                                     Executor trainingExecutor, Executor registryExecutor) {
+        this(schemaRegistryClient, schemaCache, topicName, maxMessageSize, true, level, sampleCount, dictionarySize,
+                trainingExecutor, registryExecutor);
+    }
+
+    private ZstdDictionaryCompression(SchemaRegistryClient schemaRegistryClient, SchemaCache schemaCache, String topicName,
+                                      int maxMessageSize, boolean compressing, int level, int sampleCount, int dictionarySize,
+                                      Executor trainingExecutor, Executor registryExecutor) {
+        Preconditions.checkArgument(maxMessageSize > HEADER_SIZE_WITH_DICTIONARY, "Maximum message size must be larger than the header.");
+        Preconditions.checkArgument(sampleCount >= 0, "Sample count must not be negative.");
+        Preconditions.checkArgument(dictionarySize >= MIN_DICTIONARY_SIZE, "Dictionary size must be at least " + MIN_DICTIONARY_SIZE + " bytes.");
+        this.schemaRegistryClient = schemaRegistryClient;
+        this.schemaCache = schemaCache;
+        this.topicName = topicName;
+        this.maxMessageSize = maxMessageSize;
+        this.compressing = compressing;
+        this.level = level;
+        this.sampleCount = sampleCount;
+        this.dictionarySize = dictionarySize;
+        this.trainingExecutor = trainingExecutor;
+        this.registryExecutor = registryExecutor;
+    }
+
+    /**
+     * @return the executor which the serdes of all data sets look up and register dictionaries on.
+     */
+    public static Executor sharedRegistryExecutor() {
+        return SHARED_REGISTRY_EXECUTOR;
+    }
+
+    /**
+     * zstd-jni is provided by the Kafka client of the platform, which may lack it or bring a version without the
+     * methods used here. Its classes, methods and native library are checked once, on the first call.
+     *
+     * @return whether messages can be compressed and decompressed.
+     */
+    public static boolean isZstdAvailable() {
+        return ZstdAvailability.FAILURE == null;
+    }
+
+    public boolean isCompressing() {
+        return compressing;
+    }
+
+    public static boolean isCompressed(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC_BYTE;
+    }
+
+    /**
+     * @param message message in the Confluent wire format.
+     * @return the compressed message, or the given message while there is no dictionary for its schema ID yet or when
+     * it doesn't get smaller.
+     */
+    public byte[] compress(byte[] message) {
+        if (!isCompressing() || message.length <= HEADER_SIZE || message.length > maxMessageSize || message[0] != ConfluentWireFormat.MAGIC_BYTE) {
+            return message;
+        }
+
+        int schemaId = ConfluentWireFormat.readSchemaId(message);
+        SchemaDictionary schemaDictionary = schemaDictionaries.computeIfAbsent(schemaId, SchemaDictionary::new);
+        CompressionDictionary dictionary = schemaDictionary.dictionary;
+        if (dictionary == null) {
+            schemaDictionary.sample(message);
+            return message;
+        }
+
+        int payloadSize = message.length - HEADER_SIZE;
+        byte[] compressed = new byte[HEADER_SIZE_WITH_DICTIONARY + (int) Zstd.compressBound(payloadSize)];
+        long compressedSize = Zstd.compressFastDict(compressed, HEADER_SIZE_WITH_DICTIONARY, message, HEADER_SIZE, payloadSize, dictionary.dictionary);
+        if (Zstd.isError(compressedSize)) {
+            throw new AvroSerdeException("Message of schema ID " + schemaId + " couldn't be compressed: " + Zstd.getErrorName(compressedSize));
+        }
+        if (HEADER_SIZE_WITH_DICTIONARY + compressedSize >= message.length) {
+            return message;
+        }
+
+        compressed[0] = MAGIC_BYTE;
+        writeInt(compressed, 1, schemaId);
+        writeInt(compressed, HEADER_SIZE, dictionary.id);
+        return Arrays.copyOf(compressed, HEADER_SIZE_WITH_DICTIONARY + (int) compressedSize);
+    }
+
+    /**
+     * @return the message in the Confluent wire format, the given data when it isn't compressed.
+     */
+    public byte[] decompress(byte[] data) {
+        if (!isCompressed(data)) {
+            return data;
+        }
+        if (data.length <= HEADER_SIZE_WITH_DICTIONARY) {
+            throw new AvroSerdeException("Compressed message is too short to hold a schema ID and a dictionary ID.");
+        }
+        if (!isZstdAvailable()) {
+            throw new AvroSerdeException("Compressed message can't be decompressed, zstd-jni couldn't be loaded.", ZstdAvailability.FAILURE);
+        }
+
+        int schemaId = readInt(data, 1);
+        int dictionaryId = readInt(data, HEADER_SIZE);
+        int frameSize = data.length - HEADER_SIZE_WITH_DICTIONARY;
+        long payloadSize = Zstd.decompressedSize(data, HEADER_SIZE_WITH_DICTIONARY, frameSize);
+        if (payloadSize <= 0) {
+            throw new AvroSerdeException("Compressed message of schema ID " + schemaId + " doesn't hold a valid payload size.");
+        }
+        if (payloadSize > maxMessageSize - HEADER_SIZE) {
+            throw new AvroSerdeException("Compressed message of schema ID " + schemaId + " holds a payload of " + payloadSize
+                    + " bytes, more than the maximum message size of " + maxMessageSize + " bytes.");
+        }
+        ZstdDictDecompress dictionary = decompressionDictionary(dictionaryId, schemaId);
+
+        byte[] message = new byte[HEADER_SIZE + (int) payloadSize];
+        message[0] = ConfluentWireFormat.MAGIC_BYTE;
+        writeInt(message, 1, schemaId);
+        long decompressedSize = Zstd.decompressFastDict(message, HEADER_SIZE, data, HEADER_SIZE_WITH_DICTIONARY, frameSize, dictionary);
+        if (Zstd.isError(decompressedSize) || decompressedSize != payloadSize) {
+            throw new AvroSerdeException("Message of schema ID " + schemaId + " couldn't be decompressed with dictionary " + dictionaryId + ".");
+        }
+
+        return message;
+    }
+
+    private ZstdDictDecompress decompressionDictionary(int dictionaryId, int schemaId) {
+        try {
+            return decompressionDictionaries.get(dictionaryId, () -> new ZstdDictDecompress(fetchDictionary(dictionaryId, schemaId)));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof AvroSerdeException) {
+                throw (AvroSerdeException) e.getCause();
+            }
+            throw new AvroSerdeException("Dictionary " + dictionaryId + " couldn't be loaded.", e.getCause());
+        }
+    }
+
+    private byte[] fetchDictionary(int dictionaryId, int schemaId) {
+        Schema dictionarySchema;
+        try {
+            dictionarySchema = schemaCache.getById(dictionaryId);
+        } catch (RestClientException e) {
+            if (e.getStatus() == NOT_FOUND) {
+                throw new AvroSerdeException("Dictionary " + dictionaryId + " isn't registered.", e);
+            }
+            throw new SchemaRegistryException("Dictionary " + dictionaryId + " couldn't be fetched from the schema registry.", e);
+        } catch (IOException e) {
+            throw new SchemaRegistryException("Dictionary " + dictionaryId + " couldn't be fetched from the schema registry.", e);
+        }
+
+        Object dictionarySchemaId = dictionarySchema.getObjectProp(SCHEMA_ID_PROPERTY);
+        String dictionary = dictionarySchema.getProp(DICTIONARY_PROPERTY);
+        if (dictionary == null || !(dictionarySchemaId instanceof Number) || ((Number) dictionarySchemaId).intValue() != schemaId) {
+            throw new AvroSerdeException("Schema " + dictionaryId + " isn't a dictionary of schema ID " + schemaId + ".");
+        }
+
+        return Base64.getDecoder().decode(dictionary);
+    }
+
+    /**
+     * @return the latest dictionary registered for the schema ID, or {@code null} when there is none.
+     */
+    private CompressionDictionary latestDictionary(int schemaId) {
+        String subject = String.format(SUBJECT_FORMAT, topicName, schemaId);
+        int dictionaryId;
+        try {
+            dictionaryId = schemaRegistryClient.getLatestSchemaMetadata(subject).getId();
+        } catch (RestClientException e) {
+            if (e.getStatus() == NOT_FOUND) {
+                return null;
+            }
+            throw new SchemaRegistryException("Latest dictionary of subject '" + subject + "' couldn't be looked up.", e);
+        } catch (IOException e) {
+            throw new SchemaRegistryException("Latest dictionary of subject '" + subject + "' couldn't be looked up.", e);
+        }
+
+        byte[] dictionary = fetchDictionary(dictionaryId, schemaId);
+        decompressionDictionaries.put(dictionaryId, new ZstdDictDecompress(dictionary));
+        return new CompressionDictionary(dictionaryId, new ZstdDictCompress(dictionary, level));
+    }
+
+    private int register(int schemaId, byte[] dictionary) {
+        Schema dictionarySchema = Schema.createFixed("ZstdDictionary", null, getClass().getPackage().getName(), 1);
+        dictionarySchema.addProp(SCHEMA_ID_PROPERTY, schemaId);
+        dictionarySchema.addProp(DICTIONARY_PROPERTY, Base64.getEncoder().encodeToString(dictionary));
+        String subject = String.format(SUBJECT_FORMAT, topicName, schemaId);
+        try {
+            return schemaRegistryClient.register(subject, new AvroSchema(dictionarySchema));
+        } catch (IOException | RestClientException e) {
+            throw new SchemaRegistryException("Dictionary couldn't be registered for subject '" + subject + "'", e);
+        }
+    }
+
+    private static Executor newRegistryExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(REGISTRY_THREADS, REGISTRY_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("zstd-dictionary-registry-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+    }
+
+    private static final class ZstdAvailability {
+        private static final Throwable FAILURE = check();
+
+        /**
+         * Loading the {@code Zstd} class loads the native library.
+         */
+        private static Throwable check() {
+            try {
+                ClassLoader classLoader = ZstdDictionaryCompression.class.getClassLoader();
+                Class<?> zstd = Class.forName("com.github.luben.zstd.Zstd", true, classLoader);
+                Class<?> compressDictionary = Class.forName("com.github.luben.zstd.ZstdDictCompress", true, classLoader);
+                Class<?> decompressDictionary = Class.forName("com.github.luben.zstd.ZstdDictDecompress", true, classLoader);
+                Class<?> trainer = Class.forName("com.github.luben.zstd.ZstdDictTrainer", true, classLoader);
+                zstd.getMethod("compressFastDict", byte[].class, int.class, byte[].class, int.class, int.class, compressDictionary);
+                zstd.getMethod("decompressFastDict", byte[].class, int.class, byte[].class, int.class, int.class, decompressDictionary);
+                zstd.getMethod("decompressedSize", byte[].class, int.class, int.class);
+                compressDictionary.getConstructor(byte[].class, int.class);
+                decompressDictionary.getConstructor(byte[].class);
+                trainer.getConstructor(int.class, int.class);
+                trainer.getMethod("trainSamples");
+                return null;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.error("zstd-jni of the Kafka client couldn't be loaded, or lacks methods used by payload compression.", e);
+                return e;
+            }
+        }
+    }
+
+    private static final class CompressionDictionary {
+        private final int id;
+        private final ZstdDictCompress dictionary;
+
+        private CompressionDictionary(int id, ZstdDictCompress dictionary) {
+            this.id = id;
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * Looks up the latest dictionary of a schema ID and, when training is enabled, samples its messages meanwhile.
+     * Sampling stops when a dictionary is found. Otherwise the dictionary is trained once enough samples are collected,
+     * and registered unless another node has registered one in the meantime. Lookup, training and registration are
+     * attempted once, when they fail the messages of the schema ID stay uncompressed.
+     */
+    private final class SchemaDictionary {
+        private final int schemaId;
+        private ZstdDictTrainer trainer;
+        private int samples;
+        private boolean lookedUp;
+        private boolean sampling = sampleCount > 0;
+        private volatile CompressionDictionary dictionary;
+
+        private SchemaDictionary(int schemaId) {
+            this.schemaId = schemaId;
+        }
+
+        private void sample(byte[] message) {
+            boolean lookUp;
+            ZstdDictTrainer completeTrainer = null;
+            synchronized (this) {
+                lookUp = !lookedUp;
+                lookedUp = true;
+                if (sampling) {
+                    if (trainer == null) {
+                        trainer = new ZstdDictTrainer(dictionarySize * SAMPLE_BUFFER_RATIO, dictionarySize);
+                    }
+                    if (!trainer.addSample(Arrays.copyOfRange(message, HEADER_SIZE, message.length)) || ++samples >= sampleCount) {
+                        completeTrainer = trainer;
+                        trainer = null;
+                        sampling = false;
+                    }
+                }
+            }
+
+            if (lookUp) {
+                registryExecutor.execute(this::lookUp);
+            }
+            if (completeTrainer != null) {
+                ZstdDictTrainer samplesToTrain = completeTrainer;
+                trainingExecutor.execute(() -> train(samplesToTrain));
+            }
+        }
+
+        private void lookUp() {
+            try {
+                CompressionDictionary latest = latestDictionary(schemaId);
+                if (latest != null) {
+                    use(latest, "registered");
+                }
+            } catch (ZstdException | AvroSerdeException e) {
+                LOGGER.warn("Dictionary for schema ID " + schemaId + " on topic '" + topicName + "' couldn't be looked up, its messages stay uncompressed.", e);
+                stopSampling();
+            }
+        }
+
+        private void train(ZstdDictTrainer completeTrainer) {
+            if (dictionary != null) {
+                return;
+            }
+
+            byte[] trainedDictionary;
+            try {
+                trainedDictionary = completeTrainer.trainSamples();
+            } catch (ZstdException e) {
+                LOGGER.warn("Dictionary for schema ID " + schemaId + " on topic '" + topicName + "' couldn't be trained, its messages stay uncompressed.", e);
+                return;
+            }
+            registryExecutor.execute(() -> register(trainedDictionary));
+        }
+
+        private void register(byte[] trainedDictionary) {
+            try {
+                CompressionDictionary latest = latestDictionary(schemaId);
+                if (latest != null) {
+                    use(latest, "registered");
+                    return;
+                }
+
+                int dictionaryId = ZstdDictionaryCompression.this.register(schemaId, trainedDictionary);
+                decompressionDictionaries.put(dictionaryId, new ZstdDictDecompress(trainedDictionary));
+                use(new CompressionDictionary(dictionaryId, new ZstdDictCompress(trainedDictionary, level)), "trained");
+            } catch (ZstdException | AvroSerdeException e) {
+                LOGGER.warn("Dictionary for schema ID " + schemaId + " on topic '" + topicName + "' couldn't be registered, its messages stay uncompressed.", e);
+            }
+        }
+
+        private void use(CompressionDictionary compressionDictionary, String origin) {
+            stopSampling();
+            if (dictionary == null) {
+                dictionary = compressionDictionary;
+                LOGGER.info("Dictionary {} {} for schema ID {} on topic '{}' is used to compress its messages.",
+                        compressionDictionary.id, origin, schemaId, topicName);
+            }
+        }
+
+        private synchronized void stopSampling() {
+            trainer = null;
+            sampling = false;
+        }
+    }
+}
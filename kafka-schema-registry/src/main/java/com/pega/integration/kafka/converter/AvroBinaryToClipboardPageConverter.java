@@ -0,0 +1,47 @@
+package com.pega.integration.kafka.converter;
+
+import com.pega.integration.kafka.converter.plan.ResolutionPlan;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.runtime.PublicAPI;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+import java.io.IOException;
+
+import static com.pega.integration.kafka.util.ConfluentWireFormat.HEADER_SIZE;
+
+/**
+ * Decodes a message in the Confluent wire format straight into a clipboard page, without building a
+ * {@link org.apache.avro.generic.GenericRecord} first. The {@link ResolutionPlan} decides whether the message is
+ * resolved against a reader schema, the same way {@link org.apache.avro.generic.GenericDatumReader} would do it.
+ */
+public class AvroBinaryToClipboardPageConverter {
+    private static final ThreadLocal<BinaryDecoder> DECODERS = new ThreadLocal<>();
+
+    public ClipboardPage convertAvroBinaryToClipboardPage(PublicAPI api, byte[] data, ResolutionPlan plan, String className) throws IOException {
+        ClipboardPage page = api.createPage(className, "");
+        decodeAvroBinaryIntoClipboardPage(page, data, plan);
+
+        return page;
+    }
+
+    public void decodeAvroBinaryIntoClipboardPage(ClipboardPage page, byte[] data, ResolutionPlan plan) throws IOException {
+        plan.decode(page, decoderFor(data));
+    }
+
+    /**
+     * Decodes into a record instead of a page, which lets the decoding run on another thread than the one owning the
+     * {@link PublicAPI} and its clipboard.
+     */
+    public GenericRecord decodeAvroBinaryToGenericRecord(byte[] data, ResolutionPlan plan) throws IOException {
+        return plan.read(decoderFor(data));
+    }
+
+    private static BinaryDecoder decoderFor(byte[] data) {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, DECODERS.get());
+        DECODERS.set(decoder);
+
+        return decoder;
+    }
+}
@@ -0,0 +1,87 @@
+package com.pega.integration.kafka.converter;
+
+import com.pega.integration.kafka.converter.plan.NestingDepth;
+import com.pega.integration.kafka.converter.plan.RecordWriter;
+import com.pega.integration.kafka.converter.plan.SchemaPlanCache;
+import com.pega.integration.kafka.converter.plan.WritePlanCompiler;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.util.ReusableByteArrayOutputStream;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.IOException;
+
+import static com.pega.integration.kafka.util.ConfluentWireFormat.writeHeader;
+
+/**
+ * Encodes a clipboard page straight to a message in the Confluent wire format, without building a
+ * {@link org.apache.avro.generic.GenericRecord} first. The output is byte-identical to converting the page with
+ * {@link ClipboardPageToGenericRecordConverter} and serializing the record with the Confluent Avro serializer.
+ * <p>
+ * Every thread encodes into its own reused buffer, so the only allocation per message is the returned array.
+ */
+public class ClipboardPageToAvroBinaryConverter {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private static final ThreadLocal<EncodingBuffer> BUFFERS = ThreadLocal.withInitial(EncodingBuffer::new);
+
+    private final SchemaPlanCache<RecordWriter> writePlans;
+
+    public ClipboardPageToAvroBinaryConverter() {
+        this(NestingDepth.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxDepth how deep records may be nested in the encoded pages.
+     */
+    public ClipboardPageToAvroBinaryConverter(int maxDepth) {
+        this.writePlans = new SchemaPlanCache<>(schema -> WritePlanCompiler.compile(schema, maxDepth));
+    }
+
+    public byte[] convertClipboardPageToAvroBinary(ClipboardPage page, Schema schema, int schemaId) {
+        return encode(page, writePlans.get(schema), BUFFERS.get(), schemaId);
+    }
+
+    /**
+     * Resolves the write plan and the encoding buffer once for a batch of pages encoded with the same schema.
+     * The returned encoder is bound to the buffer of the calling thread and must not be handed over to other threads.
+     */
+    public BatchEncoder newBatchEncoder(Schema schema, int schemaId) {
+        return new BatchEncoder(writePlans.get(schema), BUFFERS.get(), schemaId);
+    }
+
+    private static byte[] encode(ClipboardPage page, RecordWriter writer, EncodingBuffer buffer, int schemaId) {
+        buffer.output.reset();
+        writeHeader(buffer.output, schemaId);
+        try {
+            writer.encode(page, buffer.encoder);
+        } catch (IOException e) {
+            throw new AvroSerdeException("Encoding of page to " + writer.getSchema().getFullName() + " has failed.", e);
+        }
+
+        return buffer.output.toByteArray();
+    }
+
+    public static final class BatchEncoder {
+        private final RecordWriter writer;
+        private final EncodingBuffer buffer;
+        private final int schemaId;
+
+        private BatchEncoder(RecordWriter writer, EncodingBuffer buffer, int schemaId) {
+            this.writer = writer;
+            this.buffer = buffer;
+            this.schemaId = schemaId;
+        }
+
+        public byte[] encode(ClipboardPage page) {
+            return ClipboardPageToAvroBinaryConverter.encode(page, writer, buffer, schemaId);
+        }
+    }
+
+    private static final class EncodingBuffer {
+        private final ReusableByteArrayOutputStream output = new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(output, null);
+    }
+}
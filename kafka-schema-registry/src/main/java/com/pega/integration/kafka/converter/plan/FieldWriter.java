@@ -0,0 +1,18 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+
+/**
+ * Converts the value of a clipboard property to a single Avro schema node, either as its Java representation or
+ * straight to the Avro binary encoding. Both produce the same bytes once the Java representation is written by a
+ * {@link org.apache.avro.generic.GenericDatumWriter}.
+ */
+public interface FieldWriter {
+
+    Object write(ClipboardProperty property);
+
+    void encode(ClipboardProperty property, Encoder encoder) throws IOException;
+}
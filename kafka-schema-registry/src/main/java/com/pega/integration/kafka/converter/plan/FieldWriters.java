@@ -0,0 +1,523 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericArray;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field writers for the non-record nodes of a compiled conversion plan.
+ */
+final class FieldWriters {
+    static final String UNSUPPORTED_DATA_TYPE_MESSAGE = "Unsupported data type! ";
+
+    static final FieldWriter STRING = new StringWriter();
+    static final FieldWriter LONG = new LongWriter();
+    static final FieldWriter INT = new IntWriter();
+    static final FieldWriter FLOAT = new FloatWriter();
+    static final FieldWriter DOUBLE = new DoubleWriter();
+    static final FieldWriter BOOLEAN = new BooleanWriter();
+    static final FieldWriter BYTES = new BytesWriter();
+
+    private FieldWriters() {
+        throw new IllegalStateException("Utility class shouldn't be instantiated.");
+    }
+
+    static FieldWriter unsupported(Schema.Type type) {
+        return new UnsupportedWriter(type);
+    }
+
+    /**
+     * @return writer of a record nested deeper than the maximum depth of the plan, which fails when there is a value.
+     */
+    static FieldWriter tooDeep(Schema schema, int maxDepth) {
+        return new TooDeepWriter(schema, maxDepth);
+    }
+
+    /**
+     * @return the writer for the logical type of the schema, or {@code null} when the schema has no logical type which
+     * maps to a Pega property type. DateTime and Date properties are written to timestamps and dates, and any numeric
+     * property to decimals. UUIDs and times of day are written as their underlying type.
+     */
+    static FieldWriter forLogicalType(Schema schema) {
+        LogicalType logicalType = schema.getLogicalType();
+        if (logicalType instanceof LogicalTypes.TimestampMillis || logicalType instanceof LogicalTypes.LocalTimestampMillis) {
+            return new TimestampWriter(1);
+        } else if (logicalType instanceof LogicalTypes.TimestampMicros || logicalType instanceof LogicalTypes.LocalTimestampMicros) {
+            return new TimestampWriter(1000);
+        } else if (logicalType instanceof LogicalTypes.Date) {
+            return new DateWriter();
+        } else if (logicalType instanceof LogicalTypes.Decimal) {
+            return new DecimalWriter(schema, (LogicalTypes.Decimal) logicalType);
+        }
+
+        return null;
+    }
+
+    static boolean isTemporal(ClipboardProperty property) {
+        char type = property.getType();
+        return type == ImmutablePropertyInfo.TYPE_DATETIME || type == ImmutablePropertyInfo.TYPE_DATE;
+    }
+
+    static class StringWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return property.getStringValue();
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeString(property.getStringValue());
+        }
+    }
+
+    /**
+     * Enum symbols are written to the record as {@link GenericData.EnumSymbol}s, which the datum writer requires for
+     * enum fields, and as their ordinal by the direct encoding. The symbols are created once per plan.
+     */
+    static class EnumWriter implements FieldWriter {
+        private final Schema enumSchema;
+        private final Map<String, GenericData.EnumSymbol> symbols = new HashMap<>();
+
+        EnumWriter(Schema enumSchema) {
+            this.enumSchema = enumSchema;
+            for (String symbol : enumSchema.getEnumSymbols()) {
+                symbols.put(symbol, new GenericData.EnumSymbol(enumSchema, symbol));
+            }
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            String symbol = property.getStringValue();
+            GenericData.EnumSymbol enumSymbol = symbols.get(symbol);
+            if (enumSymbol == null) {
+                throw notASymbol(enumSchema, symbol);
+            }
+
+            return enumSymbol;
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeEnum(ordinal(enumSchema, property.getStringValue()));
+        }
+
+        static int ordinal(Schema enumSchema, String symbol) {
+            if (!enumSchema.hasEnumSymbol(symbol)) {
+                throw notASymbol(enumSchema, symbol);
+            }
+
+            return enumSchema.getEnumOrdinal(symbol);
+        }
+
+        private static AvroSerdeException notASymbol(Schema enumSchema, String symbol) {
+            return new AvroSerdeException("'" + symbol + "' is not a symbol of enum " + enumSchema.getFullName());
+        }
+    }
+
+    static class LongWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return Long.parseLong(property.getStringValue());
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeLong(Long.parseLong(property.getStringValue()));
+        }
+    }
+
+    static class IntWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return property.toInteger();
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeInt(property.toInteger());
+        }
+    }
+
+    static class FloatWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return (float) property.toDouble();
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeFloat((float) property.toDouble());
+        }
+    }
+
+    static class DoubleWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return property.toDouble();
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeDouble(property.toDouble());
+        }
+    }
+
+    static class BooleanWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return toBoolean(property);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeBoolean(toBoolean(property));
+        }
+
+        private static boolean toBoolean(ClipboardProperty property) {
+            String value = property.getStringValue();
+            if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+                return property.toBoolean();
+            }
+            throw new AvroSerdeException(UNSUPPORTED_DATA_TYPE_MESSAGE + Schema.Type.BOOLEAN);
+        }
+    }
+
+    /**
+     * Writes the epoch value of DateTime and Date properties. Properties of other types are expected to hold the epoch
+     * value itself, as they did before logical types were supported.
+     */
+    static class TimestampWriter implements FieldWriter {
+        private final long unitsPerMilli;
+
+        TimestampWriter(long unitsPerMilli) {
+            this.unitsPerMilli = unitsPerMilli;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            return toTimestamp(property);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeLong(toTimestamp(property));
+        }
+
+        private long toTimestamp(ClipboardProperty property) {
+            if (isTemporal(property)) {
+                return Math.multiplyExact(toDate(property).getTime(), unitsPerMilli);
+            }
+
+            return Long.parseLong(property.getStringValue());
+        }
+    }
+
+    static class DateWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return toDays(property);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeInt(toDays(property));
+        }
+
+        private static int toDays(ClipboardProperty property) {
+            if (isTemporal(property)) {
+                return Math.toIntExact(Math.floorDiv(toDate(property).getTime(), PropertyPopulators.DatePopulator.MILLIS_PER_DAY));
+            }
+
+            return property.toInteger();
+        }
+    }
+
+    private static Date toDate(ClipboardProperty property) {
+        Date date = property.toDate();
+        if (date == null) {
+            throw new AvroSerdeException("Property " + property.getName() + " doesn't hold a valid date");
+        }
+
+        return date;
+    }
+
+    /**
+     * Writes the two's-complement unscaled value of the property at the scale of the schema. Values which would need
+     * rounding, or which don't fit the precision or the fixed size, are rejected rather than silently truncated.
+     */
+    static class DecimalWriter implements FieldWriter {
+        private final Schema schema;
+        private final int precision;
+        private final int scale;
+        private final int fixedSize;
+
+        DecimalWriter(Schema schema, LogicalTypes.Decimal decimal) {
+            this.schema = schema;
+            this.precision = decimal.getPrecision();
+            this.scale = decimal.getScale();
+            this.fixedSize = schema.getType() == Schema.Type.FIXED ? schema.getFixedSize() : -1;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            byte[] unscaled = toUnscaledBytes(property);
+            return fixedSize >= 0 ? new GenericData.Fixed(schema, unscaled) : ByteBuffer.wrap(unscaled);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            byte[] unscaled = toUnscaledBytes(property);
+            if (fixedSize >= 0) {
+                encoder.writeFixed(unscaled);
+            } else {
+                encoder.writeBytes(unscaled);
+            }
+        }
+
+        private byte[] toUnscaledBytes(ClipboardProperty property) {
+            BigDecimal value = property.toBigDecimal();
+            if (value == null) {
+                throw new AvroSerdeException("Property " + property.getName() + " doesn't hold a valid decimal");
+            }
+
+            BigDecimal scaled;
+            try {
+                scaled = value.setScale(scale);
+            } catch (ArithmeticException e) {
+                throw new AvroSerdeException("Value " + value + " of property " + property.getName()
+                        + " doesn't fit the scale " + scale + " of " + schema.getFullName(), e);
+            }
+            if (scaled.precision() > precision) {
+                throw new AvroSerdeException("Value " + value + " of property " + property.getName()
+                        + " doesn't fit the precision " + precision + " of " + schema.getFullName());
+            }
+
+            byte[] unscaled = scaled.unscaledValue().toByteArray();
+            return fixedSize >= 0 ? signExtend(unscaled) : unscaled;
+        }
+
+        private byte[] signExtend(byte[] unscaled) {
+            if (unscaled.length > fixedSize) {
+                throw new AvroSerdeException("Decimal of " + unscaled.length + " bytes doesn't fit " + schema.getFullName());
+            }
+            if (unscaled.length == fixedSize) {
+                return unscaled;
+            }
+
+            byte[] extended = new byte[fixedSize];
+            Arrays.fill(extended, 0, fixedSize - unscaled.length, unscaled[0] < 0 ? (byte) -1 : 0);
+            System.arraycopy(unscaled, 0, extended, fixedSize - unscaled.length, unscaled.length);
+            return extended;
+        }
+    }
+
+    /**
+     * @return the binary value of a Java Object property holding a {@link ByteBuffer} or a byte array, without copying
+     * it. Text properties, like attachment content, are taken as Base64.
+     */
+    static ByteBuffer toByteBuffer(ClipboardProperty property) {
+        if (property.getMode() == ImmutablePropertyInfo.MODE_JAVA_OBJECT) {
+            Object value = property.getObjectValue();
+            if (value instanceof ByteBuffer) {
+                return ((ByteBuffer) value).duplicate();
+            } else if (value instanceof byte[]) {
+                return ByteBuffer.wrap((byte[]) value);
+            }
+            throw new AvroSerdeException("Property " + property.getName() + " doesn't hold a binary value");
+        }
+
+        try {
+            return ByteBuffer.wrap(Base64.getDecoder().decode(property.getStringValue()));
+        } catch (IllegalArgumentException e) {
+            throw new AvroSerdeException("Property " + property.getName() + " doesn't hold a Base64 value", e);
+        }
+    }
+
+    static class BytesWriter implements FieldWriter {
+        @Override
+        public Object write(ClipboardProperty property) {
+            return toByteBuffer(property);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeBytes(toByteBuffer(property));
+        }
+    }
+
+    /**
+     * The record holds the backing array of the property value when it has exactly the fixed size, and a copy
+     * otherwise. The direct encoding writes the bytes straight from the buffer.
+     */
+    static class FixedWriter implements FieldWriter {
+        private final Schema fixedSchema;
+
+        FixedWriter(Schema fixedSchema) {
+            this.fixedSchema = fixedSchema;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            ByteBuffer buffer = toFixedBuffer(property);
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.array().length == buffer.remaining()) {
+                return new GenericData.Fixed(fixedSchema, buffer.array());
+            }
+
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new GenericData.Fixed(fixedSchema, bytes);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            encoder.writeFixed(toFixedBuffer(property));
+        }
+
+        private ByteBuffer toFixedBuffer(ClipboardProperty property) {
+            ByteBuffer buffer = toByteBuffer(property);
+            if (buffer.remaining() != fixedSchema.getFixedSize()) {
+                throw new AvroSerdeException("Value of " + buffer.remaining() + " bytes of property " + property.getName()
+                        + " doesn't match the size of " + fixedSchema.getFullName());
+            }
+
+            return buffer;
+        }
+    }
+
+    static class UnsupportedWriter implements FieldWriter {
+        private final Schema.Type type;
+
+        UnsupportedWriter(Schema.Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            throw new AvroSerdeException(UNSUPPORTED_DATA_TYPE_MESSAGE + type);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) {
+            throw new AvroSerdeException(UNSUPPORTED_DATA_TYPE_MESSAGE + type);
+        }
+    }
+
+    static class TooDeepWriter implements FieldWriter {
+        private final String message;
+
+        TooDeepWriter(Schema schema, int maxDepth) {
+            this.message = "Record of type " + schema.getFullName() + " is nested deeper than the maximum depth of " + maxDepth + ".";
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            throw new AvroSerdeException(message);
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) {
+            throw new AvroSerdeException(message);
+        }
+    }
+
+    static class ArrayWriter implements FieldWriter {
+        private final Schema arraySchema;
+        private final FieldWriter elementWriter;
+
+        ArrayWriter(Schema arraySchema, FieldWriter elementWriter) {
+            this.arraySchema = arraySchema;
+            this.elementWriter = elementWriter;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            int size = property.size();
+            GenericArray<Object> array = new GenericData.Array<>(size, arraySchema);
+            for (int i = 1; i <= size; i++) {
+                array.add(elementWriter.write(property.getPropertyValue(i)));
+            }
+
+            return array;
+        }
+
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            int size = property.size();
+            encoder.writeArrayStart();
+            encoder.setItemCount(size);
+            for (int i = 1; i <= size; i++) {
+                encoder.startItem();
+                elementWriter.encode(property.getPropertyValue(i), encoder);
+            }
+            encoder.writeArrayEnd();
+        }
+    }
+
+    static class MapWriter implements FieldWriter {
+        private final FieldWriter valueWriter;
+
+        MapWriter(FieldWriter valueWriter) {
+            this.valueWriter = valueWriter;
+        }
+
+        @Override
+        public Object write(ClipboardProperty property) {
+            ClipboardPage page = property.getPageValue();
+            Map<String, Object> map = new HashMap<>();
+            for (String propertyName : (Set<String>) page.keySet()) {
+                if (isExcluded(propertyName)) {
+                    continue;
+                }
+                map.put(propertyName, valueWriter.write(page.getProperty(propertyName)));
+            }
+
+            return map;
+        }
+
+        /**
+         * Entries are collected in a {@link HashMap} filled in the same order as in {@link #write}, so they are encoded
+         * in the iteration order the datum writer would see.
+         */
+        @Override
+        public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+            ClipboardPage page = property.getPageValue();
+            Map<String, ClipboardProperty> entries = new HashMap<>();
+            for (String propertyName : (Set<String>) page.keySet()) {
+                if (isExcluded(propertyName)) {
+                    continue;
+                }
+                entries.put(propertyName, page.getProperty(propertyName));
+            }
+
+            encoder.writeMapStart();
+            encoder.setItemCount(entries.size());
+            for (Map.Entry<String, ClipboardProperty> entry : entries.entrySet()) {
+                encoder.startItem();
+                encoder.writeString(entry.getKey());
+                valueWriter.encode(entry.getValue(), encoder);
+            }
+            encoder.writeMapEnd();
+        }
+
+        static boolean isExcluded(String propertyName) {
+            return "pxObjClass".equalsIgnoreCase(propertyName) || "pxSubscript".equalsIgnoreCase(propertyName);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pega.integration.kafka.converter.plan;
+
+import org.apache.avro.Schema;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of record levels a value of a schema can have, counting the record itself. Records in arrays, maps and
+ * unions count like records in fields. Named types which can contain themselves, directly or through other records,
+ * have an {@link #UNBOUNDED} depth, and so does every record which can contain one of them.
+ * <p>
+ * The plan compilers use it to limit how deep the records of a conversion can be nested: a record type whose whole
+ * depth fits into the limit is compiled once, while recursive types are compiled level by level up to the limit.
+ */
+public final class NestingDepth {
+    /**
+     * Deepest nesting which is converted on a 256 KiB thread stack, with the plans compiled on the same stack. Plan
+     * compilers recurse once per level of a recursive schema, and use more stack per level than the conversion itself
+     * while they run interpreted.
+     */
+    public static final int MAX_DEPTH_LIMIT = 100;
+    public static final int DEFAULT_MAX_DEPTH = MAX_DEPTH_LIMIT;
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final Map<String, Integer> recordDepths = new HashMap<>();
+
+    NestingDepth() {
+    }
+
+    int of(Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+                return ofRecord(schema);
+            case UNION:
+                int depth = 0;
+                for (Schema branch : schema.getTypes()) {
+                    depth = Math.max(depth, of(branch));
+                }
+                return depth;
+            case ARRAY:
+                return of(schema.getElementType());
+            case MAP:
+                return of(schema.getValueType());
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * A record is marked unbounded while its fields are visited, so reaching it again from one of them ends the walk.
+     */
+    private int ofRecord(Schema schema) {
+        Integer known = recordDepths.get(schema.getFullName());
+        if (known != null) {
+            return known;
+        }
+
+        recordDepths.put(schema.getFullName(), UNBOUNDED);
+        int fieldDepth = 0;
+        for (Schema.Field field : schema.getFields()) {
+            fieldDepth = Math.max(fieldDepth, of(field.schema()));
+        }
+        int depth = fieldDepth == UNBOUNDED ? UNBOUNDED : fieldDepth + 1;
+        recordDepths.put(schema.getFullName(), depth);
+
+        return depth;
+    }
+
+    static void checkMaxDepth(int maxDepth) {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH_LIMIT) {
+            throw new IllegalArgumentException("Maximum nesting depth must be between 1 and " + MAX_DEPTH_LIMIT + ", but was " + maxDepth + ".");
+        }
+    }
+}
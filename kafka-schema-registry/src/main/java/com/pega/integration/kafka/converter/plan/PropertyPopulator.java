@@ -0,0 +1,17 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import org.apache.avro.io.Decoder;
+
+import java.io.IOException;
+
+/**
+ * Sets a single Avro schema node on a clipboard property, either from its Java representation or straight from the
+ * Avro binary encoding. Values passed to {@link #populate} are never null.
+ */
+public interface PropertyPopulator {
+
+    void populate(ClipboardProperty property, Object value);
+
+    void decode(ClipboardProperty property, Decoder decoder) throws IOException;
+}
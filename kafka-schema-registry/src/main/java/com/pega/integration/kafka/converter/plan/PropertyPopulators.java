@@ -0,0 +1,550 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.primitives.Longs;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.util.StringCanonicalizer;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Property populators for the non-record nodes of a compiled read plan.
+ */
+final class PropertyPopulators {
+    static final PropertyPopulator STRING = new StringPopulator();
+    static final PropertyPopulator LONG = new LongPopulator();
+    static final PropertyPopulator INT = new IntPopulator();
+    static final PropertyPopulator DOUBLE = new DoublePopulator();
+    static final PropertyPopulator FLOAT = new FloatPopulator();
+    static final PropertyPopulator BOOLEAN = new BooleanPopulator();
+    static final PropertyPopulator NULL = new NullPopulator();
+
+    private PropertyPopulators() {
+        throw new IllegalStateException("Utility class shouldn't be instantiated.");
+    }
+
+    static PropertyPopulator unsupported(Schema.Type type) {
+        return new UnsupportedPopulator(type);
+    }
+
+    /**
+     * @return populator of a record nested deeper than the maximum depth of the plan, which fails when there is a value.
+     */
+    static PropertyPopulator tooDeep(Schema schema, int maxDepth) {
+        return new TooDeepPopulator(schema, maxDepth);
+    }
+
+    /**
+     * @return the populator for the logical type of the schema, or {@code null} when the schema has no logical type
+     * which maps to a Pega property type. Timestamps go to DateTime, dates to Date and decimals to Decimal properties,
+     * while timestamps and dates keep their epoch value on properties of other types.
+     * UUIDs and times of day are populated as their underlying type.
+     */
+    static PropertyPopulator forLogicalType(Schema schema) {
+        LogicalType logicalType = schema.getLogicalType();
+        if (logicalType instanceof LogicalTypes.TimestampMillis || logicalType instanceof LogicalTypes.LocalTimestampMillis) {
+            return new TimestampPopulator(1);
+        } else if (logicalType instanceof LogicalTypes.TimestampMicros || logicalType instanceof LogicalTypes.LocalTimestampMicros) {
+            return new TimestampPopulator(1000);
+        } else if (logicalType instanceof LogicalTypes.Date) {
+            return new DatePopulator();
+        } else if (logicalType instanceof LogicalTypes.Decimal) {
+            return new DecimalPopulator(schema, ((LogicalTypes.Decimal) logicalType).getScale());
+        }
+
+        return null;
+    }
+
+    static class StringPopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue(value.toString());
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(decoder.readString());
+        }
+    }
+
+    static class EnumPopulator extends StringPopulator {
+        private final List<String> symbols;
+
+        EnumPopulator(Schema enumSchema) {
+            this.symbols = enumSchema.getEnumSymbols();
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(symbols.get(decoder.readEnum()));
+        }
+    }
+
+    /**
+     * Reads strings of a low cardinality field through a per-field {@link StringCanonicalizer}, straight from the UTF-8
+     * bytes, so repeated values share one string instance.
+     */
+    static class CanonicalStringPopulator implements PropertyPopulator {
+        private static final ThreadLocal<Utf8> SCRATCH = ThreadLocal.withInitial(Utf8::new);
+
+        private final StringCanonicalizer canonicalizer;
+
+        CanonicalStringPopulator(StringCanonicalizer canonicalizer) {
+            this.canonicalizer = canonicalizer;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue(canonicalizer.canonicalize((CharSequence) value));
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            Utf8 scratch = decoder.readString(SCRATCH.get());
+            SCRATCH.set(scratch);
+            property.setValue(canonicalizer.canonicalize(scratch.getBytes(), scratch.getByteLength()));
+        }
+    }
+
+    static class LongPopulator extends StringPopulator {
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(Long.toString(decoder.readLong()));
+        }
+    }
+
+    static class IntPopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue((int) (Integer) value);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(decoder.readInt());
+        }
+    }
+
+    static class DoublePopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue((double) (Double) value);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(decoder.readDouble());
+        }
+    }
+
+    static class FloatPopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue(((Float) value).doubleValue());
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue((double) decoder.readFloat());
+        }
+    }
+
+    static class BooleanPopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            property.setValue((boolean) (Boolean) value);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            property.setValue(decoder.readBoolean());
+        }
+    }
+
+    /**
+     * Timestamps are copied to DateTime and Date properties from their epoch value. Local timestamps are taken as UTC,
+     * which is the zone Pega keeps DateTime values in. Values decoded with logical type conversions are accepted as
+     * well. Properties of any other type get the epoch value itself, the way the timestamp writer reads them back.
+     */
+    static class TimestampPopulator implements PropertyPopulator {
+        private final long unitsPerMilli;
+
+        TimestampPopulator(long unitsPerMilli) {
+            this.unitsPerMilli = unitsPerMilli;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            long timestamp;
+            if (value instanceof Instant) {
+                timestamp = toTimestamp((Instant) value);
+            } else if (value instanceof LocalDateTime) {
+                timestamp = toTimestamp(((LocalDateTime) value).toInstant(ZoneOffset.UTC));
+            } else {
+                timestamp = (Long) value;
+            }
+            setTimestamp(property, timestamp);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            setTimestamp(property, decoder.readLong());
+        }
+
+        private void setTimestamp(ClipboardProperty property, long timestamp) {
+            if (FieldWriters.isTemporal(property)) {
+                property.setValue(new Date(Math.floorDiv(timestamp, unitsPerMilli)));
+            } else {
+                property.setValue(Long.toString(timestamp));
+            }
+        }
+
+        private long toTimestamp(Instant instant) {
+            return unitsPerMilli == 1 ? instant.toEpochMilli()
+                    : Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1000 * unitsPerMilli), instant.getNano() / (1_000_000 / unitsPerMilli));
+        }
+    }
+
+    /**
+     * Dates are copied to DateTime and Date properties as midnight UTC of the day. Properties of any other type get the
+     * number of days since the epoch, the way the date writer reads them back.
+     */
+    static class DatePopulator implements PropertyPopulator {
+        static final long MILLIS_PER_DAY = 86_400_000L;
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            setDays(property, value instanceof LocalDate ? Math.toIntExact(((LocalDate) value).toEpochDay()) : (Integer) value);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            setDays(property, decoder.readInt());
+        }
+
+        private static void setDays(ClipboardProperty property, int days) {
+            if (FieldWriters.isTemporal(property)) {
+                property.setValue(new Date(days * MILLIS_PER_DAY));
+            } else {
+                property.setValue(days);
+            }
+        }
+    }
+
+    /**
+     * Decimals are built from the two's-complement unscaled value and the scale of the schema, for both the bytes and
+     * the fixed representation. They are set as {@link BigDecimal} on properties of any type, which the decimal writer
+     * reads back from every property type.
+     */
+    static class DecimalPopulator implements PropertyPopulator {
+        private final int scale;
+        private final int fixedSize;
+
+        DecimalPopulator(Schema schema, int scale) {
+            this.scale = scale;
+            this.fixedSize = schema.getType() == Schema.Type.FIXED ? schema.getFixedSize() : -1;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            if (value instanceof BigDecimal) {
+                property.setValue((BigDecimal) value);
+            } else if (value instanceof GenericFixed) {
+                property.setValue(toDecimal(((GenericFixed) value).bytes()));
+            } else {
+                ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                byte[] unscaled = new byte[buffer.remaining()];
+                buffer.get(unscaled);
+                property.setValue(toDecimal(unscaled));
+            }
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            if (fixedSize >= 0) {
+                byte[] unscaled = new byte[fixedSize];
+                decoder.readFixed(unscaled);
+                property.setValue(toDecimal(unscaled));
+            } else {
+                ByteBuffer buffer = decoder.readBytes(null);
+                property.setValue(toDecimal(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+            }
+        }
+
+        private BigDecimal toDecimal(byte[] unscaled) {
+            return toDecimal(unscaled, 0, unscaled.length);
+        }
+
+        private BigDecimal toDecimal(byte[] unscaled, int offset, int length) {
+            if (length == 0) {
+                return BigDecimal.ZERO.setScale(scale);
+            }
+            if (offset != 0 || length != unscaled.length) {
+                byte[] copy = new byte[length];
+                System.arraycopy(unscaled, offset, copy, 0, length);
+                unscaled = copy;
+            }
+
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+    }
+
+    /**
+     * Binary values are set as {@link ByteBuffer}s on Java Object properties, and as Base64 on properties of other
+     * modes, like Text properties holding attachment content, which is how {@link FieldWriters#toByteBuffer} reads
+     * them back. Buffers and fixed values of a decoded record are owned by that record alone, so they are wrapped
+     * without copying. Decoding straight from the message reads each value once into a buffer of its own, because the
+     * page outlives the buffer of the decoder.
+     */
+    static class BinaryPopulator implements PropertyPopulator {
+        private final int fixedSize;
+
+        BinaryPopulator(Schema schema) {
+            this.fixedSize = schema.getType() == Schema.Type.FIXED ? schema.getFixedSize() : -1;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            if (value instanceof GenericFixed) {
+                setBinary(property, ByteBuffer.wrap(((GenericFixed) value).bytes()));
+            } else if (value instanceof byte[]) {
+                setBinary(property, ByteBuffer.wrap((byte[]) value));
+            } else {
+                setBinary(property, ((ByteBuffer) value).duplicate());
+            }
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            if (fixedSize >= 0) {
+                byte[] bytes = new byte[fixedSize];
+                decoder.readFixed(bytes);
+                setBinary(property, ByteBuffer.wrap(bytes));
+            } else {
+                setBinary(property, decoder.readBytes(null));
+            }
+        }
+
+        private static void setBinary(ClipboardProperty property, ByteBuffer value) {
+            if (property.getMode() == ImmutablePropertyInfo.MODE_JAVA_OBJECT) {
+                property.setValue((Object) value);
+            } else {
+                property.setValue(new String(Base64.getEncoder().encode(value).array(), StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    static class NullPopulator implements PropertyPopulator {
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            decoder.readNull();
+        }
+    }
+
+    static class TooDeepPopulator implements PropertyPopulator {
+        private final String message;
+
+        TooDeepPopulator(Schema schema, int maxDepth) {
+            this.message = "Record of type " + schema.getFullName() + " is nested deeper than the maximum depth of " + maxDepth + ".";
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            throw new AvroSerdeException(message);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) {
+            throw new AvroSerdeException(message);
+        }
+    }
+
+    static class UnsupportedPopulator implements PropertyPopulator {
+        private final Schema.Type type;
+
+        UnsupportedPopulator(Schema.Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            throw new AvroSerdeException("Unsupported data type: " + type);
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) {
+            throw new AvroSerdeException("Unsupported data type: " + type);
+        }
+    }
+
+    /**
+     * Resolves the branch from the Java type of the value, the same way {@link GenericData#resolveUnion} does. Values
+     * which were not produced by an Avro decoder, like plain strings for enums or numbers for string branches, are
+     * matched against the branches in order.
+     */
+    static class UnionPopulator implements PropertyPopulator {
+        private final Schema union;
+        private final List<Schema> branches;
+        private final PropertyPopulator[] branchPopulators;
+
+        UnionPopulator(Schema union, PropertyPopulator[] branchPopulators) {
+            this.union = union;
+            this.branches = union.getTypes();
+            this.branchPopulators = branchPopulators;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            Integer branch = union.getIndexNamed(schemaName(value));
+            if (branch == null) {
+                branch = matchInOrder(value);
+            }
+            if (branch != null) {
+                branchPopulators[branch].populate(property, value);
+            }
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            branchPopulators[decoder.readIndex()].decode(property, decoder);
+        }
+
+        private Integer matchInOrder(Object value) {
+            for (int i = 0; i < branches.size(); i++) {
+                if (valueMatchesSchema(branches.get(i), value)) {
+                    return i;
+                }
+            }
+
+            return null;
+        }
+
+        private static String schemaName(Object value) {
+            if (value instanceof GenericContainer) {
+                return ((GenericContainer) value).getSchema().getFullName();
+            } else if (value instanceof CharSequence) {
+                return "string";
+            } else if (value instanceof Integer) {
+                return "int";
+            } else if (value instanceof Long) {
+                return "long";
+            } else if (value instanceof Double) {
+                return "double";
+            } else if (value instanceof Float) {
+                return "float";
+            } else if (value instanceof Boolean) {
+                return "boolean";
+            } else if (value instanceof Map) {
+                return "map";
+            } else if (value instanceof ByteBuffer || value instanceof BigDecimal) {
+                return "bytes";
+            } else if (value instanceof Instant || value instanceof LocalDateTime) {
+                return "long";
+            } else if (value instanceof LocalDate) {
+                return "int";
+            }
+
+            return "";
+        }
+
+        private static boolean valueMatchesSchema(Schema schema, Object value) {
+            switch (schema.getType()) {
+                case RECORD:
+                    return value instanceof GenericRecord;
+                case ENUM:
+                    return value instanceof GenericData.EnumSymbol || value instanceof String;
+                case STRING:
+                    return value instanceof String || value instanceof Utf8;
+                case LONG:
+                    return value instanceof Long || Longs.tryParse(value.toString()) != null;
+                case BYTES:
+                    return value instanceof ByteBuffer || value instanceof byte[];
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static class ArrayPopulator implements PropertyPopulator {
+        private final PropertyPopulator elementPopulator;
+
+        ArrayPopulator(PropertyPopulator elementPopulator) {
+            this.elementPopulator = elementPopulator;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            for (Object element : (Iterable<?>) value) {
+                ClipboardProperty item = property.getPropertyValue(ClipboardProperty.LIST_APPEND);
+                if (element != null) {
+                    elementPopulator.populate(item, element);
+                }
+            }
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            for (long count = decoder.readArrayStart(); count != 0; count = decoder.arrayNext()) {
+                for (long i = 0; i < count; i++) {
+                    elementPopulator.decode(property.getPropertyValue(ClipboardProperty.LIST_APPEND), decoder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decoded map entries are added to the page group in the order of the message, as there is no intermediate map.
+     */
+    static class MapPopulator implements PropertyPopulator {
+        private final PropertyPopulator valuePopulator;
+
+        MapPopulator(PropertyPopulator valuePopulator) {
+            this.valuePopulator = valuePopulator;
+        }
+
+        @Override
+        public void populate(ClipboardProperty property, Object value) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                ClipboardProperty item = property.getPropertyValue(entry.getKey().toString());
+                if (entry.getValue() != null) {
+                    valuePopulator.populate(item, entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+            for (long count = decoder.readMapStart(); count != 0; count = decoder.mapNext()) {
+                for (long i = 0; i < count; i++) {
+                    valuePopulator.decode(property.getPropertyValue(decoder.readString()), decoder);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.util.StringCanonicalizer;
+import org.apache.avro.Schema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a record schema into a tree of {@link PropertyPopulator}s, so decoded records are copied to the clipboard
+ * without dispatching on the schema type of every value.
+ * <p>
+ * Records are nested at most {@code maxDepth} levels deep, which bounds the stack a conversion needs. Recursive named
+ * types are compiled once per level up to the limit, like {@link WritePlanCompiler} does, and a record nested deeper
+ * than that fails the conversion.
+ * <p>
+ * Fields marked with {@code "lowCardinality": true}, on the field or on its string type, read their strings through a
+ * per-field {@link StringCanonicalizer}. This also applies to strings in arrays, maps and unions of such fields.
+ * <p>
+ * Timestamp, date and decimal logical types are populated as DateTime, Date and Decimal values straight from their
+ * encoded form, without formatting them as text first. Bytes and fixed values are populated as {@link
+ * java.nio.ByteBuffer}s on Java Object properties, and as Base64 on other properties.
+ */
+public class ReadPlanCompiler {
+    public static final String LOW_CARDINALITY_PROPERTY = "lowCardinality";
+
+    private final Map<String, RecordPopulator> recordPopulators = new HashMap<>();
+    private final NestingDepth nestingDepth = new NestingDepth();
+    private final int maxDepth;
+
+    private ReadPlanCompiler(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public static RecordPopulator compile(Schema schema) {
+        return compile(schema, NestingDepth.DEFAULT_MAX_DEPTH);
+    }
+
+    public static RecordPopulator compile(Schema schema, int maxDepth) {
+        if (schema.getType() != Schema.Type.RECORD) {
+            throw new AvroSerdeException("Not a record schema: " + schema);
+        }
+        NestingDepth.checkMaxDepth(maxDepth);
+
+        return new ReadPlanCompiler(maxDepth).compileRecord(schema, 1);
+    }
+
+    /**
+     * @param depth level of the record, 1 for the record of the compiled schema.
+     */
+    private RecordPopulator compileRecord(Schema schema, int depth) {
+        int remainingDepth = maxDepth - depth + 1;
+        String key = nestingDepth.of(schema) <= remainingDepth ? schema.getFullName() : schema.getFullName() + '@' + depth;
+        RecordPopulator populator = recordPopulators.get(key);
+        if (populator != null) {
+            populator.limitRemainingDepth(remainingDepth);
+            return populator;
+        }
+
+        populator = new RecordPopulator(schema, remainingDepth);
+        recordPopulators.put(key, populator);
+
+        List<Schema.Field> fields = schema.getFields();
+        PropertyPopulator[] fieldPopulators = new PropertyPopulator[fields.size()];
+        for (Schema.Field field : fields) {
+            fieldPopulators[field.pos()] = compileNode(field.schema(), depth, isLowCardinality(field.getObjectProp(LOW_CARDINALITY_PROPERTY)));
+        }
+        populator.initialize(fields, fieldPopulators);
+
+        return populator;
+    }
+
+    private static boolean isLowCardinality(Object property) {
+        return Boolean.TRUE.equals(property) || "true".equals(property);
+    }
+
+    /**
+     * @param depth level of the record which contains the node.
+     */
+    private PropertyPopulator compileNode(Schema schema, int depth, boolean lowCardinality) {
+        PropertyPopulator logicalTypePopulator = PropertyPopulators.forLogicalType(schema);
+        if (logicalTypePopulator != null) {
+            return logicalTypePopulator;
+        }
+
+        Schema.Type type = schema.getType();
+        switch (type) {
+            case RECORD:
+                return depth < maxDepth ? compileRecord(schema, depth + 1) : PropertyPopulators.tooDeep(schema, maxDepth);
+            case UNION:
+                List<Schema> branches = schema.getTypes();
+                PropertyPopulator[] branchPopulators = new PropertyPopulator[branches.size()];
+                for (int i = 0; i < branchPopulators.length; i++) {
+                    branchPopulators[i] = compileNode(branches.get(i), depth, lowCardinality);
+                }
+                return new PropertyPopulators.UnionPopulator(schema, branchPopulators);
+            case ARRAY:
+                return new PropertyPopulators.ArrayPopulator(compileNode(schema.getElementType(), depth, lowCardinality));
+            case MAP:
+                return new PropertyPopulators.MapPopulator(compileNode(schema.getValueType(), depth, lowCardinality));
+            case ENUM:
+                return new PropertyPopulators.EnumPopulator(schema);
+            case LONG:
+                return PropertyPopulators.LONG;
+            case STRING:
+                if (lowCardinality || isLowCardinality(schema.getObjectProp(LOW_CARDINALITY_PROPERTY))) {
+                    return new PropertyPopulators.CanonicalStringPopulator(new StringCanonicalizer(StringCanonicalizer.DEFAULT_CAPACITY));
+                }
+                return PropertyPopulators.STRING;
+            case INT:
+                return PropertyPopulators.INT;
+            case DOUBLE:
+                return PropertyPopulators.DOUBLE;
+            case FLOAT:
+                return PropertyPopulators.FLOAT;
+            case BOOLEAN:
+                return PropertyPopulators.BOOLEAN;
+            case BYTES:
+            case FIXED:
+                return new PropertyPopulators.BinaryPopulator(schema);
+            case NULL:
+                return PropertyPopulators.NULL;
+            default:
+                return PropertyPopulators.unsupported(type);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.ResolvingDecoder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compiled read plan of a record schema. Field values are read by position, and every field of the schema gets a
+ * property on the page, also when its value is null. The same plan decodes the Avro binary encoding of the record.
+ */
+public class RecordPopulator implements PropertyPopulator {
+    private final Schema schema;
+    private int remainingDepth;
+    private String[] fieldNames;
+    private PropertyPopulator[] fieldPopulators;
+    private volatile SchemaPlanCache<RecordPopulator> otherSchemaPlans;
+
+    /**
+     * @param remainingDepth number of record levels which may be nested in a record of this plan, counting the record
+     *                       itself.
+     */
+    RecordPopulator(Schema schema, int remainingDepth) {
+        this.schema = schema;
+        this.remainingDepth = remainingDepth;
+    }
+
+    /**
+     * A plan shared by records on several levels only lets records of other schema instances nest as deep as on the
+     * deepest of them.
+     */
+    void limitRemainingDepth(int remainingDepth) {
+        this.remainingDepth = Math.min(this.remainingDepth, remainingDepth);
+    }
+
+    void initialize(List<Schema.Field> fields, PropertyPopulator[] populators) {
+        String[] names = new String[fields.size()];
+        for (Schema.Field field : fields) {
+            names[field.pos()] = field.name();
+        }
+
+        this.fieldNames = names;
+        this.fieldPopulators = populators;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public void populate(ClipboardPage page, GenericRecord record) {
+        Schema recordSchema = record.getSchema();
+        if (recordSchema != schema) {
+            // Only happens for nested records which were built by hand with another schema instance than their parent's.
+            RecordPopulator populator = otherSchemaPlans().get(recordSchema);
+            if (populator != this) {
+                populator.populate(page, record);
+                return;
+            }
+        }
+
+        for (int i = 0; i < fieldNames.length; i++) {
+            ClipboardProperty property = page.getProperty(fieldNames[i]);
+            Object value = record.get(i);
+            if (value != null) {
+                fieldPopulators[i].populate(property, value);
+            }
+        }
+    }
+
+    /**
+     * Plans for records with another schema instance than this plan's, looked up by instance and then by fingerprint
+     * like all plans are, so a record is never compared field by field with the schema of this plan. An equal schema
+     * maps to this plan. Other schemas are compiled with the depth remaining below this plan's level, so the records
+     * nested in them count towards the same maximum depth as the records around them.
+     */
+    private SchemaPlanCache<RecordPopulator> otherSchemaPlans() {
+        SchemaPlanCache<RecordPopulator> plans = otherSchemaPlans;
+        if (plans == null) {
+            long fingerprint = SchemaPlanCache.fingerprint(schema);
+            plans = new SchemaPlanCache<>(other -> SchemaPlanCache.fingerprint(other) == fingerprint ? this : ReadPlanCompiler.compile(other, remainingDepth));
+            otherSchemaPlans = plans;
+        }
+
+        return plans;
+    }
+
+    @Override
+    public void populate(ClipboardProperty property, Object value) {
+        populate(property.getPageValue(), (GenericRecord) value);
+    }
+
+    /**
+     * Reads the fields in the order of the writer schema when the decoder resolves schemas. The properties are still
+     * created in the order of this schema first, like {@link #populate} does.
+     */
+    public void decode(ClipboardPage page, Decoder decoder) throws IOException {
+        if (decoder instanceof ResolvingDecoder) {
+            Schema.Field[] readOrder = ((ResolvingDecoder) decoder).readFieldOrder();
+            ClipboardProperty[] properties = new ClipboardProperty[fieldNames.length];
+            for (int i = 0; i < fieldNames.length; i++) {
+                properties[i] = page.getProperty(fieldNames[i]);
+            }
+            for (Schema.Field field : readOrder) {
+                fieldPopulators[field.pos()].decode(properties[field.pos()], decoder);
+            }
+            return;
+        }
+
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldPopulators[i].decode(page.getProperty(fieldNames[i]), decoder);
+        }
+    }
+
+    @Override
+    public void decode(ClipboardProperty property, Decoder decoder) throws IOException {
+        decode(property.getPageValue(), decoder);
+    }
+}
@@ -0,0 +1,117 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compiled conversion plan of a record schema. Conversion is driven by the schema's field list, so properties of the
+ * page which are not part of the schema are never looked at.
+ */
+public class RecordWriter implements FieldWriter {
+    private static final int NOT_NULLABLE = -1;
+    private static final int NULL_TYPE = -2;
+
+    private final Schema schema;
+    private String[] fieldNames;
+    private FieldWriter[] fieldWriters;
+    private int[] nullEncodings;
+
+    RecordWriter(Schema schema) {
+        this.schema = schema;
+    }
+
+    void initialize(List<Schema.Field> fields, FieldWriter[] writers) {
+        String[] names = new String[fields.size()];
+        int[] nulls = new int[fields.size()];
+        for (Schema.Field field : fields) {
+            names[field.pos()] = field.name();
+            nulls[field.pos()] = nullEncoding(field.schema());
+        }
+
+        this.fieldNames = names;
+        this.fieldWriters = writers;
+        this.nullEncodings = nulls;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public GenericRecord write(ClipboardPage page) {
+        if (page == null) {
+            throw new AvroSerdeException("Page is null and can't be converted to a record of type: " + schema.getFullName());
+        }
+
+        GenericData.Record record = new GenericData.Record(schema);
+        for (int i = 0; i < fieldNames.length; i++) {
+            ClipboardProperty property = page.getIfPresent(fieldNames[i]);
+            if (property != null) {
+                record.put(i, fieldWriters[i].write(property));
+            }
+        }
+
+        return record;
+    }
+
+    @Override
+    public Object write(ClipboardProperty property) {
+        return write(property.getPageValue());
+    }
+
+    public void encode(ClipboardPage page, Encoder encoder) throws IOException {
+        if (page == null) {
+            throw new AvroSerdeException("Page is null and can't be converted to a record of type: " + schema.getFullName());
+        }
+
+        for (int i = 0; i < fieldNames.length; i++) {
+            ClipboardProperty property = page.getIfPresent(fieldNames[i]);
+            if (property != null) {
+                fieldWriters[i].encode(property, encoder);
+            } else {
+                encodeNull(i, encoder);
+            }
+        }
+    }
+
+    @Override
+    public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+        encode(property.getPageValue(), encoder);
+    }
+
+    private void encodeNull(int field, Encoder encoder) throws IOException {
+        int nullEncoding = nullEncodings[field];
+        if (nullEncoding == NOT_NULLABLE) {
+            throw new AvroSerdeException("Null value for non-nullable field " + fieldNames[field] + " of record " + schema.getFullName());
+        } else if (nullEncoding == NULL_TYPE) {
+            encoder.writeNull();
+        } else {
+            encoder.writeIndex(nullEncoding);
+            encoder.writeNull();
+        }
+    }
+
+    /**
+     * Returns the union index of the null branch, {@link #NULL_TYPE} for a null schema or {@link #NOT_NULLABLE}.
+     */
+    private static int nullEncoding(Schema fieldSchema) {
+        if (fieldSchema.getType() == Schema.Type.NULL) {
+            return NULL_TYPE;
+        }
+        if (fieldSchema.getType() == Schema.Type.UNION) {
+            Integer index = fieldSchema.getIndexNamed(Schema.Type.NULL.getName());
+            if (index != null) {
+                return index;
+            }
+        }
+
+        return NOT_NULLABLE;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.base.Suppliers;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Decoding plan for messages written with one schema and read with another. When both schemas are the same the plan
+ * decodes without resolution. Otherwise every thread gets its own resolving decoder, which is built once and reused
+ * for all messages of the pair. Messages can also be read into records, which are resolved by the same rules, and the
+ * read plan of the reader schema is only compiled once a message is decoded into a page.
+ */
+public class ResolutionPlan {
+    private final Schema writerSchema;
+    private final Schema readerSchema;
+    private final Supplier<RecordPopulator> populator;
+    private final ThreadLocal<ResolvingDecoder> resolvers;
+    private final GenericDatumReader<GenericRecord> recordReader;
+
+    ResolutionPlan(Schema writerSchema, Schema readerSchema, boolean identity, Supplier<RecordPopulator> populator) {
+        this.writerSchema = writerSchema;
+        this.readerSchema = readerSchema;
+        this.populator = Suppliers.memoize(populator::get);
+        this.resolvers = identity ? null : ThreadLocal.withInitial(this::createResolver);
+        this.recordReader = new GenericDatumReader<>(writerSchema, readerSchema);
+    }
+
+    public boolean isIdentity() {
+        return resolvers == null;
+    }
+
+    public void decode(ClipboardPage page, BinaryDecoder decoder) throws IOException {
+        if (resolvers == null) {
+            populator.get().decode(page, decoder);
+            return;
+        }
+
+        ResolvingDecoder resolver = resolvers.get();
+        resolver.configure(decoder);
+        populator.get().decode(page, resolver);
+        resolver.drain();
+    }
+
+    public GenericRecord read(BinaryDecoder decoder) throws IOException {
+        return recordReader.read(null, decoder);
+    }
+
+    private ResolvingDecoder createResolver() {
+        try {
+            return DecoderFactory.get().resolvingDecoder(Schema.applyAliases(writerSchema, readerSchema), readerSchema, null);
+        } catch (IOException e) {
+            throw new AvroSerdeException("Schema " + writerSchema.getFullName() + " couldn't be resolved against " + readerSchema.getFullName(), e);
+        }
+    }
+}
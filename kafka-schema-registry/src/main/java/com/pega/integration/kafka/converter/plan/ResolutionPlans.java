@@ -0,0 +1,75 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import org.apache.avro.Schema;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches a {@link ResolutionPlan} per pair of writer schema ID and reader schema fingerprint. Reader fingerprints are
+ * remembered per schema instance, so a lookup doesn't serialize the reader schema again.
+ */
+public class ResolutionPlans {
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final SchemaPlanCache<RecordPopulator> readPlans;
+    private final Cache<Schema, Long> fingerprints = CacheBuilder.newBuilder().weakKeys().build();
+    private final Cache<Key, ResolutionPlan> plans = CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE).build();
+
+    public ResolutionPlans() {
+        this(NestingDepth.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxDepth how deep records may be nested in the decoded messages.
+     */
+    public ResolutionPlans(int maxDepth) {
+        this.readPlans = new SchemaPlanCache<>(schema -> ReadPlanCompiler.compile(schema, maxDepth));
+    }
+
+    public ResolutionPlan get(int writerSchemaId, Schema writerSchema, Schema readerSchema) {
+        try {
+            long readerFingerprint = fingerprints.get(readerSchema, () -> SchemaPlanCache.fingerprint(readerSchema));
+            return plans.get(new Key(writerSchemaId, readerFingerprint), () -> {
+                boolean identity = writerSchema == readerSchema || SchemaPlanCache.fingerprint(writerSchema) == readerFingerprint;
+                return new ResolutionPlan(writerSchema, readerSchema, identity, () -> readPlans.get(identity ? writerSchema : readerSchema));
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof AvroSerdeException) {
+                throw (AvroSerdeException) e.getCause();
+            }
+            throw new AvroSerdeException("Couldn't create a resolution plan for schema id " + writerSchemaId, e.getCause());
+        }
+    }
+
+    private static final class Key {
+        private final int writerSchemaId;
+        private final long readerFingerprint;
+
+        private Key(int writerSchemaId, long readerFingerprint) {
+            this.writerSchemaId = writerSchemaId;
+            this.readerFingerprint = readerFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return writerSchemaId == key.writerSchemaId && readerFingerprint == key.readerFingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * writerSchemaId + Long.hashCode(readerFingerprint);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches plans compiled from Avro schemas.
+ * <p>
+ * Plans are looked up by schema instance first (identity comparison, weakly referenced), so the hot path never
+ * hashes or compares schemas. On a miss the plan is resolved by the 64-bit fingerprint of the full schema JSON,
+ * which makes equal schemas parsed more than once share a single compiled plan.
+ * <p>
+ * Plans refer to their schema, so the identity entries hold their plans weakly and are bounded like the fingerprint
+ * entries. An identity entry goes away with its plan once the plan is evicted by fingerprint and no longer in use.
+ */
+public class SchemaPlanCache<P> {
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final Function<Schema, P> compiler;
+    private final Cache<Schema, P> plansBySchema;
+    private final Cache<Long, P> plansByFingerprint;
+
+    public SchemaPlanCache(Function<Schema, P> compiler) {
+        this(compiler, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public SchemaPlanCache(Function<Schema, P> compiler, long maximumSize) {
+        this.compiler = compiler;
+        this.plansBySchema = CacheBuilder.newBuilder().weakKeys().weakValues().maximumSize(maximumSize).build();
+        this.plansByFingerprint = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    public P get(Schema schema) {
+        P plan = plansBySchema.getIfPresent(schema);
+        if (plan == null) {
+            plan = getByFingerprint(schema);
+            plansBySchema.put(schema, plan);
+        }
+
+        return plan;
+    }
+
+    public static long fingerprint(Schema schema) {
+        return SchemaNormalization.fingerprint64(schema.toString().getBytes(UTF_8));
+    }
+
+    private P getByFingerprint(Schema schema) {
+        try {
+            return plansByFingerprint.get(fingerprint(schema), () -> compiler.apply(schema));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof AvroSerdeException) {
+                throw (AvroSerdeException) e.getCause();
+            }
+            throw new AvroSerdeException("Couldn't compile a conversion plan for schema " + schema.getFullName(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.pega.integration.kafka.converter.plan;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reduces a record schema to a set of top level fields.
+ * <p>
+ * Reading a message with the projected schema as reader schema lets Avro schema resolution skip every other field
+ * with the decoder's skip routines, so their values are never materialized. The projected record keeps the name and
+ * aliases of the original, and nested types of the kept fields are kept whole.
+ */
+public class SchemaProjection {
+    private final Set<String> fieldNames;
+    private final SchemaPlanCache<Schema> projections = new SchemaPlanCache<>(this::project);
+
+    public SchemaProjection(Set<String> fieldNames) {
+        this.fieldNames = Collections.unmodifiableSet(fieldNames);
+    }
+
+    public Set<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * @return projection of the record schema, cached per schema.
+     */
+    public Schema apply(Schema schema) {
+        return projections.get(schema);
+    }
+
+    private Schema project(Schema schema) {
+        List<Schema.Field> fields = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+            if (fieldNames.contains(field.name())) {
+                fields.add(new Schema.Field(field, field.schema()));
+            }
+        }
+
+        if (fields.size() == schema.getFields().size()) {
+            return schema;
+        }
+
+        Schema projection = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError(), fields);
+        projection.addAllProps(schema);
+        for (String alias : schema.getAliases()) {
+            projection.addAlias(alias);
+        }
+
+        try {
+            // A kept field which refers back to the record itself would define the record twice.
+            projection.toString();
+        } catch (AvroRuntimeException e) {
+            return schema;
+        }
+
+        return projection;
+    }
+}
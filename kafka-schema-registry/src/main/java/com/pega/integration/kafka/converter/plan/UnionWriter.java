@@ -0,0 +1,352 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.util.RateLimitedLogger;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.io.Encoder;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a union by picking the branch up front from the property type and value.
+ * <p>
+ * When the plan is compiled, every branch gets a cheap, exception-free predicate and the branches are arranged into a
+ * decision table with one candidate list per kind of property type. A candidate list keeps the union order and stops
+ * at the first branch which accepts every value of that kind. Only when no predicate matches, or the chosen branch
+ * still fails, the writer falls back to trying the branches one by one, and the failures are logged rate-limited.
+ */
+class UnionWriter implements FieldWriter {
+    private static final RateLimitedLogger LOGGER =
+            new RateLimitedLogger(LoggerFactory.getLogger(UnionWriter.class), 10, TimeUnit.SECONDS);
+
+    private static final int TEXT = 0;
+    private static final int INTEGER = 1;
+    private static final int DECIMAL = 2;
+    private static final int TRUE_FALSE = 3;
+    private static final int TEMPORAL = 4;
+    private static final int KINDS = 5;
+
+    private final Schema union;
+    private final List<Schema> branches;
+    private final FieldWriter[] branchWriters;
+    private final Branch[][] decisionTable = new Branch[KINDS][];
+
+    UnionWriter(Schema union, FieldWriter[] branchWriters) {
+        this.union = union;
+        this.branches = union.getTypes();
+        this.branchWriters = branchWriters;
+        for (int kind = 0; kind < KINDS; kind++) {
+            decisionTable[kind] = candidatesFor(kind);
+        }
+    }
+
+    @Override
+    public Object write(ClipboardProperty property) {
+        Branch branch = select(property);
+        if (branch == null) {
+            return writeByTrial(property, -1, null);
+        }
+
+        return writeBranch(property, branch);
+    }
+
+    /**
+     * Structured and decimal branches are encoded straight away. Scalar values are converted first, exactly as in
+     * {@link #write}, and then encoded under the branch the datum writer would resolve for them.
+     */
+    @Override
+    public void encode(ClipboardProperty property, Encoder encoder) throws IOException {
+        Branch branch = select(property);
+        if (branch != null && branch.structured) {
+            encoder.writeIndex(branch.index);
+            branchWriters[branch.index].encode(property, encoder);
+            return;
+        }
+
+        Object value = branch == null ? writeByTrial(property, -1, null) : writeBranch(property, branch);
+        encodeScalar(value, encoder);
+    }
+
+    private Branch select(ClipboardProperty property) {
+        for (Branch branch : decisionTable[kindOf(property.getType())]) {
+            if (branch.accepts(property)) {
+                return branch;
+            }
+        }
+
+        return null;
+    }
+
+    private Object writeBranch(ClipboardProperty property, Branch branch) {
+        try {
+            return branchWriters[branch.index].write(property);
+        } catch (RuntimeException e) {
+            return writeByTrial(property, branch.index, e);
+        }
+    }
+
+    private void encodeScalar(Object value, Encoder encoder) throws IOException {
+        Integer index = union.getIndexNamed(scalarTypeName(value));
+        if (index == null) {
+            throw new AvroSerdeException("Value of type " + value.getClass().getName() + " can't be encoded as one of " + union);
+        }
+
+        encoder.writeIndex(index);
+        if (value instanceof String) {
+            encoder.writeString((String) value);
+        } else if (value instanceof Long) {
+            encoder.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            encoder.writeInt((Integer) value);
+        } else if (value instanceof Float) {
+            encoder.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            encoder.writeDouble((Double) value);
+        } else if (value instanceof ByteBuffer) {
+            encoder.writeBytes((ByteBuffer) value);
+        } else if (value instanceof GenericFixed) {
+            encoder.writeFixed(((GenericFixed) value).bytes());
+        } else if (value instanceof GenericEnumSymbol) {
+            encoder.writeEnum(branches.get(index).getEnumOrdinal(value.toString()));
+        } else {
+            encoder.writeBoolean((Boolean) value);
+        }
+    }
+
+    private static String scalarTypeName(Object value) {
+        if (value instanceof String) {
+            return Schema.Type.STRING.getName();
+        } else if (value instanceof Long) {
+            return Schema.Type.LONG.getName();
+        } else if (value instanceof Integer) {
+            return Schema.Type.INT.getName();
+        } else if (value instanceof Float) {
+            return Schema.Type.FLOAT.getName();
+        } else if (value instanceof Double) {
+            return Schema.Type.DOUBLE.getName();
+        } else if (value instanceof Boolean) {
+            return Schema.Type.BOOLEAN.getName();
+        } else if (value instanceof ByteBuffer) {
+            return Schema.Type.BYTES.getName();
+        } else if (value instanceof GenericFixed) {
+            return ((GenericFixed) value).getSchema().getFullName();
+        } else if (value instanceof GenericEnumSymbol) {
+            return ((GenericEnumSymbol<?>) value).getSchema().getFullName();
+        }
+
+        // Structured values only come out of the trial fallback and are left to the record based serialization.
+        return "";
+    }
+
+    private Object writeByTrial(ClipboardProperty property, int failedBranch, RuntimeException failure) {
+        RuntimeException lastFailure = failure;
+        for (int i = 0; i < branchWriters.length; i++) {
+            if (i == failedBranch || branches.get(i).getType() == Schema.Type.NULL) {
+                continue;
+            }
+            try {
+                return branchWriters[i].write(property);
+            } catch (RuntimeException e) {
+                lastFailure = e;
+            }
+        }
+
+        LOGGER.warn("Property couldn't be matched with the potential schema.", lastFailure);
+        throw new AvroSerdeException("Property couldn't be evaluated based on the given schema." + property.getName());
+    }
+
+    private Branch[] candidatesFor(int kind) {
+        List<Branch> candidates = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            Branch branch = branchFor(i, kind);
+            if (branch == null) {
+                continue;
+            }
+            candidates.add(branch);
+            if (branch.check == Check.ALWAYS) {
+                break;
+            }
+        }
+
+        return candidates.toArray(new Branch[0]);
+    }
+
+    private Branch branchFor(int index, int kind) {
+        boolean numeric = kind == INTEGER || kind == DECIMAL;
+        LogicalType logicalType = branches.get(index).getLogicalType();
+        if (logicalType != null) {
+            Branch branch = logicalBranchFor(index, logicalType, kind, numeric);
+            if (branch != null || logicalType instanceof LogicalTypes.Decimal) {
+                return branch;
+            }
+        }
+
+        switch (branches.get(index).getType()) {
+            case STRING:
+            case ENUM:
+                return new Branch(index, Check.ALWAYS);
+            case LONG:
+                return new Branch(index, kind == INTEGER ? Check.ALWAYS : Check.LONG_VALUE);
+            case INT:
+                return new Branch(index, numeric ? Check.ALWAYS : Check.INT_VALUE);
+            case FLOAT:
+            case DOUBLE:
+                return new Branch(index, numeric ? Check.ALWAYS : Check.DOUBLE_VALUE);
+            case BOOLEAN:
+                return new Branch(index, Check.BOOLEAN_VALUE);
+            case RECORD:
+                return new Branch(index, Check.PAGE_MODE);
+            case MAP:
+                return new Branch(index, Check.GROUP_MODE);
+            case ARRAY:
+                return new Branch(index, Check.LIST_MODE);
+            case BYTES:
+            case FIXED:
+                return new Branch(index, Check.BINARY_VALUE);
+            default:
+                // A non-null property never goes to a null branch, and the remaining types can't be written at all.
+                return null;
+        }
+    }
+
+    /**
+     * DateTime and Date properties always go to timestamp and date branches, and numeric properties to decimal
+     * branches. Otherwise a logical type branch is chosen by the value, like its underlying type.
+     */
+    private static Branch logicalBranchFor(int index, LogicalType logicalType, int kind, boolean numeric) {
+        if (logicalType instanceof LogicalTypes.TimestampMillis || logicalType instanceof LogicalTypes.TimestampMicros
+                || logicalType instanceof LogicalTypes.LocalTimestampMillis || logicalType instanceof LogicalTypes.LocalTimestampMicros
+                || logicalType instanceof LogicalTypes.Date) {
+            return kind == TEMPORAL ? new Branch(index, Check.ALWAYS) : null;
+        } else if (logicalType instanceof LogicalTypes.Decimal) {
+            if (numeric) {
+                return new Branch(index, Check.ALWAYS, true);
+            }
+            return kind == TEXT ? new Branch(index, Check.DOUBLE_VALUE, true) : null;
+        }
+
+        return null;
+    }
+
+    private static int kindOf(char type) {
+        switch (type) {
+            case ImmutablePropertyInfo.TYPE_INTEGER:
+                return INTEGER;
+            case ImmutablePropertyInfo.TYPE_DOUBLE:
+            case ImmutablePropertyInfo.TYPE_DECIMAL:
+                return DECIMAL;
+            case ImmutablePropertyInfo.TYPE_TRUEFALSE:
+                return TRUE_FALSE;
+            case ImmutablePropertyInfo.TYPE_DATETIME:
+            case ImmutablePropertyInfo.TYPE_DATE:
+                return TEMPORAL;
+            default:
+                return TEXT;
+        }
+    }
+
+    private enum Check {
+        ALWAYS {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                return true;
+            }
+        },
+        LONG_VALUE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                return Longs.tryParse(property.getStringValue()) != null;
+            }
+        },
+        INT_VALUE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                String value = property.getStringValue();
+                return value.isEmpty() || Ints.tryParse(value) != null;
+            }
+        },
+        DOUBLE_VALUE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                String value = property.getStringValue();
+                return value.isEmpty() || Doubles.tryParse(value) != null;
+            }
+        },
+        BOOLEAN_VALUE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                String value = property.getStringValue();
+                return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+            }
+        },
+        BINARY_VALUE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                if (property.getMode() != ImmutablePropertyInfo.MODE_JAVA_OBJECT) {
+                    return false;
+                }
+                Object value = property.getObjectValue();
+                return value instanceof ByteBuffer || value instanceof byte[];
+            }
+        },
+        PAGE_MODE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                char mode = property.getMode();
+                return mode == ImmutablePropertyInfo.MODE_PAGE || mode == ImmutablePropertyInfo.MODE_UNKNOWN;
+            }
+        },
+        GROUP_MODE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                char mode = property.getMode();
+                return mode == ImmutablePropertyInfo.MODE_STRING_GROUP || mode == ImmutablePropertyInfo.MODE_PAGE_GROUP
+                        || mode == ImmutablePropertyInfo.MODE_PAGE || mode == ImmutablePropertyInfo.MODE_UNKNOWN;
+            }
+        },
+        LIST_MODE {
+            @Override
+            boolean accepts(ClipboardProperty property) {
+                char mode = property.getMode();
+                return mode == ImmutablePropertyInfo.MODE_STRING_LIST || mode == ImmutablePropertyInfo.MODE_PAGE_LIST
+                        || mode == ImmutablePropertyInfo.MODE_UNKNOWN;
+            }
+        };
+
+        abstract boolean accepts(ClipboardProperty property);
+    }
+
+    private static final class Branch {
+        private final int index;
+        private final Check check;
+        private final boolean structured;
+
+        private Branch(int index, Check check) {
+            this(index, check, check == Check.PAGE_MODE || check == Check.GROUP_MODE || check == Check.LIST_MODE);
+        }
+
+        private Branch(int index, Check check, boolean structured) {
+            this.index = index;
+            this.check = check;
+            this.structured = structured;
+        }
+
+        private boolean accepts(ClipboardProperty property) {
+            return check.accepts(property);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import org.apache.avro.Schema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a record schema into a tree of {@link FieldWriter}s. The type dispatch happens once per schema node here
+ * instead of once per value during conversion. Timestamp, date and decimal logical types are written from the typed
+ * value of the property, not from its text.
+ * <p>
+ * Records are nested at most {@code maxDepth} levels deep. A record type which fits into the limit with everything
+ * it contains is compiled once and shared by the plan. Recursive named types are compiled once per level instead, so
+ * the plan has no cycles and ends in a writer which fails the conversion of records nested deeper than the limit.
+ * Conversions never check the depth while they run.
+ */
+public class WritePlanCompiler {
+    private final Map<String, RecordWriter> recordWriters = new HashMap<>();
+    private final NestingDepth nestingDepth = new NestingDepth();
+    private final int maxDepth;
+
+    private WritePlanCompiler(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public static RecordWriter compile(Schema schema) {
+        return compile(schema, NestingDepth.DEFAULT_MAX_DEPTH);
+    }
+
+    public static RecordWriter compile(Schema schema, int maxDepth) {
+        if (schema.getType() != Schema.Type.RECORD) {
+            throw new AvroSerdeException("Not a record schema: " + schema);
+        }
+        NestingDepth.checkMaxDepth(maxDepth);
+
+        return new WritePlanCompiler(maxDepth).compileRecord(schema, 1);
+    }
+
+    /**
+     * @param depth level of the record, 1 for the record of the compiled schema.
+     */
+    private RecordWriter compileRecord(Schema schema, int depth) {
+        String key = nestingDepth.of(schema) <= maxDepth - depth + 1 ? schema.getFullName() : schema.getFullName() + '@' + depth;
+        RecordWriter writer = recordWriters.get(key);
+        if (writer != null) {
+            return writer;
+        }
+
+        writer = new RecordWriter(schema);
+        recordWriters.put(key, writer);
+
+        List<Schema.Field> fields = schema.getFields();
+        FieldWriter[] fieldWriters = new FieldWriter[fields.size()];
+        for (Schema.Field field : fields) {
+            fieldWriters[field.pos()] = compileNode(field.schema(), depth);
+        }
+        writer.initialize(fields, fieldWriters);
+
+        return writer;
+    }
+
+    /**
+     * @param depth level of the record which contains the node.
+     */
+    private FieldWriter compileNode(Schema schema, int depth) {
+        FieldWriter logicalTypeWriter = FieldWriters.forLogicalType(schema);
+        if (logicalTypeWriter != null) {
+            return logicalTypeWriter;
+        }
+
+        Schema.Type type = schema.getType();
+        switch (type) {
+            case RECORD:
+                return depth < maxDepth ? compileRecord(schema, depth + 1) : FieldWriters.tooDeep(schema, maxDepth);
+            case UNION:
+                List<Schema> branches = schema.getTypes();
+                FieldWriter[] branchWriters = new FieldWriter[branches.size()];
+                for (int i = 0; i < branchWriters.length; i++) {
+                    branchWriters[i] = compileNode(branches.get(i), depth);
+                }
+                return new UnionWriter(schema, branchWriters);
+            case ARRAY:
+                return new FieldWriters.ArrayWriter(schema, compileNode(schema.getElementType(), depth));
+            case MAP:
+                return new FieldWriters.MapWriter(compileNode(schema.getValueType(), depth));
+            case LONG:
+                return FieldWriters.LONG;
+            case ENUM:
+                return new FieldWriters.EnumWriter(schema);
+            case STRING:
+                return FieldWriters.STRING;
+            case INT:
+                return FieldWriters.INT;
+            case FLOAT:
+                return FieldWriters.FLOAT;
+            case DOUBLE:
+                return FieldWriters.DOUBLE;
+            case BOOLEAN:
+                return FieldWriters.BOOLEAN;
+            case BYTES:
+                return FieldWriters.BYTES;
+            case FIXED:
+                return new FieldWriters.FixedWriter(schema);
+            default:
+                return FieldWriters.unsupported(type);
+        }
+    }
+}
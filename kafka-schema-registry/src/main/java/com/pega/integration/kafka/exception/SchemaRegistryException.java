@@ -0,0 +1,13 @@
+package com.pega.integration.kafka.exception;
+
+/**
+ * The schema registry couldn't be reached or refused a request, e.g. because of an outage, missing authorization or a
+ * schema which couldn't be registered. Unlike errors in the records themselves, it is thrown whatever the failure
+ * policy, since every following record would fail the same way.
+ */
+public class SchemaRegistryException extends AvroSerdeException {
+
+    public SchemaRegistryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,24 @@
+package com.pega.integration.kafka.failure;
+
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+
+/**
+ * Receives the records which couldn't be converted with the {@link FailurePolicy#QUARANTINE} failure policy, e.g. to
+ * store them for inspection or send them to a dead letter topic.
+ * <p>
+ * Implementations are configured by class name and need a public no-argument constructor. A sink is called on the
+ * thread which calls the batch method, also for messages which were decoded in parallel, but it must be thread safe
+ * since a data set may convert several batches at once. A sink which throws doesn't fail the batch, the record is then
+ * dropped.
+ */
+public interface DeadLetterSink {
+    /**
+     * @param clipboardPage page which couldn't be serialized, it must not be changed.
+     */
+    void serializeFailed(String topicName, ClipboardPage clipboardPage, Exception failure);
+
+    /**
+     * @param message message which couldn't be deserialized, as it was received.
+     */
+    void deserializeFailed(String topicName, byte[] message, Exception failure);
+}
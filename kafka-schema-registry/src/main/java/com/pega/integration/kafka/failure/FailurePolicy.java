@@ -0,0 +1,41 @@
+package com.pega.integration.kafka.failure;
+
+import java.util.Locale;
+
+/**
+ * What happens to a record of a batch which couldn't be serialized or deserialized. The policy only takes effect
+ * through the batch APIs, which report failed records in their result: the platform calls the single-record methods and
+ * can't be told to drop a record, so these always throw the failure. Failures of the schema registry, such as an
+ * outage or missing authorization, aren't caused by the record and abort the batch whatever the policy.
+ */
+public enum FailurePolicy {
+    /**
+     * The failure is only reported in the batch result.
+     */
+    FAIL,
+    /**
+     * The record is also counted as skipped.
+     */
+    SKIP,
+    /**
+     * The record is also handed to the {@link DeadLetterSink}.
+     */
+    QUARANTINE;
+
+    public static FailurePolicy fromConfiguration(Object value) {
+        if (value == null) {
+            return FAIL;
+        }
+
+        for (FailurePolicy policy : values()) {
+            if (policy.configurationValue().equals(value.toString().trim())) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Failure policy must be one of 'fail', 'skip' or 'quarantine'.");
+    }
+
+    public String configurationValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
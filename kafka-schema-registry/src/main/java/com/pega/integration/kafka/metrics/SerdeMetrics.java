@@ -0,0 +1,243 @@
+package com.pega.integration.kafka.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialization metrics of a topic and class, exposed as an MXBean named
+ * {@code com.pega.integration.kafka:type=AvroSchemaRegistrySerde,topic=<topic>,class=<class>}.
+ * <p>
+ * Every serde of the same topic and class records to the same instance. Recording only touches {@link LongAdder}s,
+ * so it is lock-free and cheap enough to stay enabled; rates and percentiles are computed when they are read.
+ */
+public class SerdeMetrics implements SerdeMetricsMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerdeMetrics.class);
+
+    static final String DOMAIN = "com.pega.integration.kafka";
+
+    private static final ConcurrentMap<ObjectName, SerdeMetrics> INSTANCES = new ConcurrentHashMap<>();
+
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LatencyHistogram serializeLatency = new LatencyHistogram();
+    private final LatencyHistogram deserializeLatency = new LatencyHistogram();
+    private final LatencyHistogram registryFetchLatency = new LatencyHistogram();
+    private final Rate serializeRate = new Rate();
+    private final Rate deserializeRate = new Rate();
+    private final ConcurrentMap<String, LongAdder> serializeFailures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> deserializeFailures = new ConcurrentHashMap<>();
+    private final LongAdder skippedRecords = new LongAdder();
+    private final LongAdder quarantinedRecords = new LongAdder();
+
+    /**
+     * Creates metrics which are not registered over JMX.
+     */
+    public SerdeMetrics() {
+    }
+
+    /**
+     * Returns the metrics of the given topic and class, registering them with the platform MBean server on first use.
+     * Metrics which can't be registered are still recorded, they are only not visible over JMX.
+     */
+    public static SerdeMetrics forTopicAndClass(String topicName, String className) {
+        ObjectName name = objectName(topicName, className);
+        return INSTANCES.computeIfAbsent(name, SerdeMetrics::register);
+    }
+
+    static ObjectName objectName(String topicName, String className) {
+        try {
+            return new ObjectName(DOMAIN + ":type=AvroSchemaRegistrySerde,topic=" + ObjectName.quote(topicName)
+                    + ",class=" + ObjectName.quote(className));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metrics name for topic '" + topicName + "' and class '" + className + "'", e);
+        }
+    }
+
+    private static SerdeMetrics register(ObjectName name) {
+        SerdeMetrics metrics = new SerdeMetrics();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException | SecurityException e) {
+            LOGGER.warn("Serde metrics couldn't be registered as " + name, e);
+        }
+
+        return metrics;
+    }
+
+    public void serialized(int bytes, long nanos) {
+        bytesOut.add(bytes);
+        serializeRate.mark();
+        serializeLatency.record(nanos);
+    }
+
+    public void deserialized(int bytes, long nanos) {
+        bytesIn.add(bytes);
+        deserializeRate.mark();
+        deserializeLatency.record(nanos);
+    }
+
+    public void serializeFailed(Throwable failure) {
+        countFailure(serializeFailures, failure);
+    }
+
+    public void deserializeFailed(Throwable failure) {
+        countFailure(deserializeFailures, failure);
+    }
+
+    public void skipped() {
+        skippedRecords.increment();
+    }
+
+    public void quarantined() {
+        quarantinedRecords.increment();
+    }
+
+    public void registryFetched(long nanos) {
+        registryFetchLatency.record(nanos);
+    }
+
+    private static void countFailure(ConcurrentMap<String, LongAdder> failures, Throwable failure) {
+        String type = failure.getClass().getSimpleName();
+        LongAdder count = failures.get(type);
+        if (count == null) {
+            count = failures.computeIfAbsent(type, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @Override
+    public long getSerializedRecords() {
+        return serializeRate.total();
+    }
+
+    @Override
+    public long getDeserializedRecords() {
+        return deserializeRate.total();
+    }
+
+    @Override
+    public double getSerializedRecordsPerSecond() {
+        return serializeRate.perSecond();
+    }
+
+    @Override
+    public double getDeserializedRecordsPerSecond() {
+        return deserializeRate.perSecond();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public LatencySnapshot getSerializeLatency() {
+        return serializeLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getDeserializeLatency() {
+        return deserializeLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRegistryFetchLatency() {
+        return registryFetchLatency.snapshot();
+    }
+
+    @Override
+    public long getRegistryFetches() {
+        return registryFetchLatency.snapshot().getCount();
+    }
+
+    @Override
+    public Map<String, Long> getSerializeFailures() {
+        return snapshotOf(serializeFailures);
+    }
+
+    @Override
+    public Map<String, Long> getDeserializeFailures() {
+        return snapshotOf(deserializeFailures);
+    }
+
+    @Override
+    public long getSkippedRecords() {
+        return skippedRecords.sum();
+    }
+
+    @Override
+    public long getQuarantinedRecords() {
+        return quarantinedRecords.sum();
+    }
+
+    private static Map<String, Long> snapshotOf(ConcurrentMap<String, LongAdder> failures) {
+        Map<String, Long> result = new TreeMap<>();
+        failures.forEach((type, count) -> result.put(type, count.sum()));
+        return result;
+    }
+
+    /**
+     * Counts events and derives the rate from the count between two reads, at least a second apart, so marking an
+     * event is a single add.
+     */
+    private static final class Rate {
+        private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final LongAdder count = new LongAdder();
+        private final AtomicReference<Sample> lastSample = new AtomicReference<>(new Sample(0, System.nanoTime(), 0));
+
+        void mark() {
+            count.increment();
+        }
+
+        long total() {
+            return count.sum();
+        }
+
+        double perSecond() {
+            Sample last = lastSample.get();
+            long now = System.nanoTime();
+            long elapsed = now - last.time;
+            if (elapsed < MIN_INTERVAL_NANOS) {
+                return last.rate;
+            }
+
+            long total = count.sum();
+            Sample next = new Sample(total, now, (total - last.count) * (double) MIN_INTERVAL_NANOS / elapsed);
+            return lastSample.compareAndSet(last, next) ? next.rate : lastSample.get().rate;
+        }
+    }
+
+    private static final class Sample {
+        private final long count;
+        private final long time;
+        private final double rate;
+
+        private Sample(long count, long time, double rate) {
+            this.count = count;
+            this.time = time;
+            this.rate = rate;
+        }
+    }
+}
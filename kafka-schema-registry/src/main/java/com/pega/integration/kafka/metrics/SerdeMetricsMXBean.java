@@ -0,0 +1,36 @@
+package com.pega.integration.kafka.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SerdeMetrics}. Latencies are in microseconds and rates in records per second.
+ */
+public interface SerdeMetricsMXBean {
+    long getSerializedRecords();
+
+    long getDeserializedRecords();
+
+    double getSerializedRecordsPerSecond();
+
+    double getDeserializedRecordsPerSecond();
+
+    long getBytesOut();
+
+    long getBytesIn();
+
+    LatencySnapshot getSerializeLatency();
+
+    LatencySnapshot getDeserializeLatency();
+
+    LatencySnapshot getRegistryFetchLatency();
+
+    long getRegistryFetches();
+
+    Map<String, Long> getSerializeFailures();
+
+    Map<String, Long> getDeserializeFailures();
+
+    long getSkippedRecords();
+
+    long getQuarantinedRecords();
+}
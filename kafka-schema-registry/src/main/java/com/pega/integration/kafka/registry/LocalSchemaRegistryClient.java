@@ -0,0 +1,82 @@
+package com.pega.integration.kafka.registry;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Schema registry client backed by a local directory, for runs without a reachable schema registry.
+ * <p>
+ * The directory holds Avro schema files and an index file named {@value #INDEX_FILE_NAME}, with one line per schema
+ * version: the subject, the version, the schema ID and the schema file relative to the directory, separated by
+ * whitespace. Empty lines and lines starting with {@code #} are ignored. All schemas are read, memory-mapped, when the
+ * client is created, so lookups never leave memory. Schemas registered later, e.g. by serializers which auto-register
+ * schemas, are kept in memory only.
+ */
+public class LocalSchemaRegistryClient extends MockSchemaRegistryClient {
+    public static final String URL_SCHEME = "file";
+    public static final String INDEX_FILE_NAME = "schemas.index";
+
+    private LocalSchemaRegistryClient() {
+    }
+
+    public static boolean isLocalUrl(String url) {
+        return StringUtils.startsWithIgnoreCase(url, URL_SCHEME + ":");
+    }
+
+    /**
+     * @param url {@code file:} URL of the schema directory, e.g. {@code file:///opt/schemas}.
+     */
+    public static LocalSchemaRegistryClient forUrl(String url) {
+        try {
+            return load(Paths.get(URI.create(url.trim())));
+        } catch (IllegalArgumentException e) {
+            throw new AvroSerdeException("'" + url + "' is not a valid schema directory URL.", e);
+        }
+    }
+
+    public static LocalSchemaRegistryClient load(Path directory) {
+        LocalSchemaRegistryClient client = new LocalSchemaRegistryClient();
+        Path index = directory.resolve(INDEX_FILE_NAME);
+        String[] lines = read(index).split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] entry = line.split("\\s+");
+            if (entry.length != 4) {
+                throw new AvroSerdeException("Line " + (i + 1) + " of " + index + " must hold a subject, version, ID and schema file.");
+            }
+            try {
+                client.register(entry[0], new AvroSchema(read(directory.resolve(entry[3]))), Integer.parseInt(entry[1]), Integer.parseInt(entry[2]));
+            } catch (NumberFormatException | IOException | RestClientException e) {
+                throw new AvroSerdeException("Line " + (i + 1) + " of " + index + " couldn't be loaded.", e);
+            }
+        }
+
+        return client;
+    }
+
+    private static String read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return UTF_8.decode(content).toString();
+        } catch (IOException e) {
+            throw new AvroSerdeException("Schema file " + file + " couldn't be read.", e);
+        }
+    }
+}
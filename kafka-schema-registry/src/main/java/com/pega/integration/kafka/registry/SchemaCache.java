@@ -0,0 +1,131 @@
+package com.pega.integration.kafka.registry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.pega.integration.kafka.metrics.SerdeMetrics;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.avro.Schema;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of Avro schemas by schema ID in front of a schema registry client. Every message is decoded with the writer
+ * schema looked up here, in every deserialize mode, so the statistics describe all lookups of deserialization.
+ * <p>
+ * IDs which the registry doesn't know are remembered for a while, so a stream of messages with an unknown ID doesn't
+ * turn into a stream of registry requests. Hits, misses, load times and evictions are recorded, and every lookup in
+ * the client other than the prefetches of the warm-up is timed in the given {@link SerdeMetrics}.
+ * <p>
+ * The registry clients this component creates don't keep schemas looked up by ID, see
+ * {@link UncachedIdSchemaRegistryClient}, so the maximum size bounds the memory held by them, and an evicted or expired
+ * schema is fetched from the registry again.
+ */
+public class SchemaCache {
+    private static final int NOT_FOUND = 404;
+
+    private final SchemaRegistryClient client;
+    private final SerdeMetrics metrics;
+    private final Cache<Integer, Schema> schemas;
+    private final Cache<Integer, RestClientException> unknownIds;
+
+    public SchemaCache(SchemaRegistryClient client, long maximumSize, long timeToLiveMillis, long negativeTimeToLiveMillis) {
+        this(client, maximumSize, timeToLiveMillis, negativeTimeToLiveMillis, new SerdeMetrics());
+    }
+
+    public SchemaCache(SchemaRegistryClient client, long maximumSize, long timeToLiveMillis, long negativeTimeToLiveMillis, SerdeMetrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+
+        CacheBuilder<Object, Object> schemasBuilder = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats();
+        if (timeToLiveMillis > 0) {
+            schemasBuilder.expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS);
+        }
+        this.schemas = schemasBuilder.build();
+        this.unknownIds = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Math.max(negativeTimeToLiveMillis, 0), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public Schema getById(int id) throws IOException, RestClientException {
+        return getById(id, true);
+    }
+
+    /**
+     * Loads a schema into the cache like {@link #getById} does, but without timing the lookup, for warm-up.
+     */
+    public Schema prefetch(int id) throws IOException, RestClientException {
+        return getById(id, false);
+    }
+
+    private Schema getById(int id, boolean timed) throws IOException, RestClientException {
+        RestClientException unknownId = unknownIds.getIfPresent(id);
+        if (unknownId != null) {
+            throw new RestClientException(unknownId.getMessage(), unknownId.getStatus(), unknownId.getErrorCode());
+        }
+
+        try {
+            return schemas.get(id, () -> fetch(id, timed));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RestClientException) {
+                RestClientException cause = (RestClientException) e.getCause();
+                if (cause.getStatus() == NOT_FOUND) {
+                    unknownIds.put(id, cause);
+                }
+                throw cause;
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Schema with id " + id + " couldn't be loaded.", e.getCause());
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            throw new IOException("Schema with id " + id + " couldn't be loaded.", e.getCause());
+        }
+    }
+
+    /**
+     * Loads the latest versions of a subject into the cache. Like {@link #prefetch}, the lookups aren't timed.
+     *
+     * @return the schemas by ID, from the oldest to the latest version.
+     */
+    public Map<Integer, Schema> prefetchLatestVersions(String subject, int versions) throws IOException, RestClientException {
+        List<Integer> allVersions = client.getAllVersions(subject);
+        Map<Integer, Schema> result = new LinkedHashMap<>();
+        for (Integer version : allVersions.subList(Math.max(allVersions.size() - versions, 0), allVersions.size())) {
+            int id = client.getSchemaMetadata(subject, version).getId();
+            result.put(id, prefetch(id));
+        }
+
+        return result;
+    }
+
+    private Schema fetch(int id, boolean timed) throws IOException, RestClientException {
+        if (!timed) {
+            return (Schema) client.getSchemaById(id).rawSchema();
+        }
+
+        long start = System.nanoTime();
+        try {
+            return (Schema) client.getSchemaById(id).rawSchema();
+        } finally {
+            metrics.registryFetched(System.nanoTime() - start);
+        }
+    }
+
+    public CacheStats getStats() {
+        return schemas.stats();
+    }
+
+    public long size() {
+        return schemas.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pega.integration.kafka.registry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Node-level pool of schema registry clients, shared by all serde instances with the same client configuration.
+ * <p>
+ * A client and the schema and ID caches it keeps are created for the first instance which asks for it, and kept as
+ * long as any instance still uses it. Pega doesn't tell a serde when its data set is no longer used, so clients are
+ * never closed explicitly: they hold no threads, and a client no instance refers to anymore is garbage collected.
+ * Clients are keyed by the complete client configuration, i.e. the registry URL, the authentication and any additional
+ * configuration, so instances never share a client configured differently.
+ */
+public class SchemaRegistryClientPool {
+    private static final SchemaRegistryClientPool SHARED = new SchemaRegistryClientPool();
+
+    private final Cache<Map<String, String>, SchemaRegistryClient> clients = CacheBuilder.newBuilder().weakValues().build();
+
+    SchemaRegistryClientPool() {
+    }
+
+    public static SchemaRegistryClientPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param clientConfiguration configuration the client is created with, values are compared by their string form.
+     * @param clientFactory       creates the client when there is none for the configuration yet.
+     * @return the client for the configuration, which stays in the pool while the caller keeps a reference to it.
+     */
+    public synchronized SchemaRegistryClient get(Map<String, ?> clientConfiguration, Supplier<SchemaRegistryClient> clientFactory) {
+        Map<String, String> key = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : clientConfiguration.entrySet()) {
+            key.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        SchemaRegistryClient client = clients.getIfPresent(key);
+        if (client == null) {
+            client = clientFactory.get();
+            clients.put(key, client);
+        }
+
+        return client;
+    }
+
+    public synchronized long size() {
+        clients.cleanUp();
+        return clients.size();
+    }
+}
@@ -0,0 +1,81 @@
+package com.pega.integration.kafka.registry;
+
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import org.apache.avro.Schema;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.pega.integration.kafka.util.SchemaRegistryUtils.parseSchemaContent;
+import static com.pega.integration.kafka.util.SchemaRegistryUtils.validateUrl;
+import static io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig.BASIC_AUTH_CREDENTIALS_SOURCE;
+import static io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG;
+import static io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig.USER_INFO_CONFIG;
+
+/**
+ * Schema registry configuration instance, parsed once: the client configuration with the URL, the authentication and
+ * the additional configurations, and the decoded schema.
+ */
+public class SchemaRegistryConfiguration {
+    private final String updateDateTime;
+    private final Map<String, String> clientConfiguration;
+    private final Schema schema;
+    private final boolean useSchemaEvolution;
+
+    private SchemaRegistryConfiguration(String updateDateTime, Map<String, String> clientConfiguration, Schema schema, boolean useSchemaEvolution) {
+        this.updateDateTime = updateDateTime;
+        this.clientConfiguration = Collections.unmodifiableMap(clientConfiguration);
+        this.schema = schema;
+        this.useSchemaEvolution = useSchemaEvolution;
+    }
+
+    public static SchemaRegistryConfiguration parse(ClipboardPage instance) {
+        Map<String, String> clientConfiguration = new HashMap<>();
+        clientConfiguration.put(SCHEMA_REGISTRY_URL_CONFIG, validateUrl(instance.getString("URL")));
+
+        String authSource = instance.getString("AuthenticationSource");
+        if (StringUtils.isNotBlank(authSource)) {
+            clientConfiguration.put(BASIC_AUTH_CREDENTIALS_SOURCE, authSource);
+            clientConfiguration.put(USER_INFO_CONFIG, instance.getString("UserInfo"));
+        }
+
+        ClipboardProperty configs = instance.getProperty("AdditionalConfigurations");
+        for (int i = 1; i <= configs.size(); i++) {
+            clientConfiguration.put(configs.getStringValue(i, "pyKey"), configs.getStringValue(i, "pyValue"));
+        }
+
+        String encodedSchemaContent = instance.getString("SchemaContent");
+        Schema schema = StringUtils.isNotBlank(encodedSchemaContent) ? parseSchemaContent(encodedSchemaContent) : null;
+
+        return new SchemaRegistryConfiguration(updateDateTimeOf(instance), clientConfiguration, schema, instance.getBoolean("UseSchemaEvolution"));
+    }
+
+    static String updateDateTimeOf(ClipboardPage instance) {
+        return instance.getString("pxUpdateDateTime");
+    }
+
+    String getUpdateDateTime() {
+        return updateDateTime;
+    }
+
+    /**
+     * @return the configuration of the schema registry client, which can't be modified.
+     */
+    public Map<String, String> getClientConfiguration() {
+        return clientConfiguration;
+    }
+
+    /**
+     * @return the configured schema, or {@code null} when the instance has no schema content.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public boolean useSchemaEvolution() {
+        return useSchemaEvolution;
+    }
+}
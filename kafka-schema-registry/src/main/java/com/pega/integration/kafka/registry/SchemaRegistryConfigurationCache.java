@@ -0,0 +1,38 @@
+package com.pega.integration.kafka.registry;
+
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node-level cache of parsed schema registry configuration instances by configuration name.
+ * <p>
+ * A cached configuration is used as long as the update date time of the instance hasn't changed, so configuring data
+ * sets again doesn't decode and parse the schema again. A saved instance gets a new update date time and is parsed
+ * again on the next configure. Instances without an update date time are always parsed.
+ */
+public class SchemaRegistryConfigurationCache {
+    private static final SchemaRegistryConfigurationCache SHARED = new SchemaRegistryConfigurationCache();
+
+    private final ConcurrentMap<String, SchemaRegistryConfiguration> configurations = new ConcurrentHashMap<>();
+
+    SchemaRegistryConfigurationCache() {
+    }
+
+    public static SchemaRegistryConfigurationCache shared() {
+        return SHARED;
+    }
+
+    public SchemaRegistryConfiguration get(String configName, ClipboardPage instance) {
+        String updateDateTime = SchemaRegistryConfiguration.updateDateTimeOf(instance);
+        if (StringUtils.isBlank(updateDateTime)) {
+            configurations.remove(configName);
+            return SchemaRegistryConfiguration.parse(instance);
+        }
+
+        return configurations.compute(configName, (name, cached) ->
+                cached != null && updateDateTime.equals(cached.getUpdateDateTime()) ? cached : SchemaRegistryConfiguration.parse(instance));
+    }
+}
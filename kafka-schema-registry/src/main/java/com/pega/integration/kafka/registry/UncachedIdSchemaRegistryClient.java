@@ -0,0 +1,56 @@
+package com.pega.integration.kafka.registry;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.confluent.kafka.schemaregistry.ParsedSchema;
+import io.confluent.kafka.schemaregistry.SchemaProvider;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.RestService;
+import io.confluent.kafka.schemaregistry.client.rest.entities.SchemaString;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry client which fetches schemas by ID from the registry on every lookup instead of keeping them.
+ * <p>
+ * The Confluent client keeps every schema it has looked up by ID for as long as it lives, and a client is shared by
+ * many data sets, so neither of them can bound that memory. This component looks schemas up by ID through the
+ * {@link SchemaCache} of every serde instead, whose size and time to live apply. The IDs of the schemas a data set
+ * writes are still cached by the Confluent client, since they only grow with the schemas configured on this node.
+ */
+public class UncachedIdSchemaRegistryClient extends CachedSchemaRegistryClient {
+    private final RestService restService;
+
+    public UncachedIdSchemaRegistryClient(List<String> urls, int cacheCapacity, List<SchemaProvider> providers,
+                                          Map<String, ?> originals, Map<String, String> httpHeaders) {
+        this(new RestService(urls), cacheCapacity, providers, originals, httpHeaders);
+    }
+
+    /**
+     * @param restService configured by the Confluent client with the authentication and SSL settings of the originals.
+     */
+    @VisibleForTesting
+    UncachedIdSchemaRegistryClient(RestService restService, int cacheCapacity, List<SchemaProvider> providers,
+                                   Map<String, ?> originals, Map<String, String> httpHeaders) {
+        super(restService, cacheCapacity, providers, originals, httpHeaders);
+        this.restService = restService;
+    }
+
+    @Override
+    public ParsedSchema getSchemaById(int id) throws IOException, RestClientException {
+        return fetchSchema(id);
+    }
+
+    @Override
+    public ParsedSchema getSchemaBySubjectAndId(String subject, int id) throws IOException, RestClientException {
+        return fetchSchema(id);
+    }
+
+    private ParsedSchema fetchSchema(int id) throws IOException, RestClientException {
+        SchemaString schemaString = restService.getId(id);
+        return parseSchema(schemaString.getSchemaType(), schemaString.getSchemaString(), schemaString.getReferences())
+                .orElseThrow(() -> new IOException("Schema with id " + id + " couldn't be parsed."));
+    }
+}
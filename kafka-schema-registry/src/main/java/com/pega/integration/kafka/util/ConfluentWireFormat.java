@@ -0,0 +1,33 @@
+package com.pega.integration.kafka.util;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+
+/**
+ * Framing of messages produced by the Confluent Avro serializer: a zero magic byte, followed by the schema ID as a
+ * 4-byte big-endian integer, followed by the Avro binary encoding of the value.
+ */
+public class ConfluentWireFormat {
+    public static final byte MAGIC_BYTE = 0x0;
+    public static final int ID_SIZE = 4;
+    public static final int HEADER_SIZE = 1 + ID_SIZE;
+
+    private ConfluentWireFormat() {
+        throw new IllegalStateException("Utility class shouldn't be instantiated.");
+    }
+
+    public static void writeHeader(ReusableByteArrayOutputStream out, int schemaId) {
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+    }
+
+    public static int readSchemaId(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE || data[0] != MAGIC_BYTE) {
+            throw new AvroSerdeException("Unknown magic byte! Data isn't in the Confluent wire format.");
+        }
+
+        return (data[1] & 0xFF) << 24 | (data[2] & 0xFF) << 16 | (data[3] & 0xFF) << 8 | (data[4] & 0xFF);
+    }
+}
@@ -0,0 +1,57 @@
+package com.pega.integration.kafka.util;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.pega.pegarules.priv.logging.SLF4JLog.FORCE_LOGGING_MARKER;
+
+/**
+ * Logs at most one message per interval and counts the messages suppressed in between, so a burst of identical
+ * failures doesn't turn into a logging storm. The stack trace is only attached to the messages which get logged.
+ */
+public class RateLimitedLogger {
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextLogTime;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+        this.nextLogTime = new AtomicLong(System.nanoTime());
+    }
+
+    public void warn(String message, Throwable cause) {
+        if (tryAcquire()) {
+            logger.warn(FORCE_LOGGING_MARKER, withSuppressedCount(message), cause);
+        }
+    }
+
+    public void error(String message, Throwable cause) {
+        if (tryAcquire()) {
+            logger.error(withSuppressedCount(message), cause);
+        }
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long next = nextLogTime.get();
+        if (now - next >= 0 && nextLogTime.compareAndSet(next, now + intervalNanos)) {
+            return true;
+        }
+
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    private String withSuppressedCount(String message) {
+        long count = suppressed.getAndSet(0);
+        return count == 0 ? message : message + " (" + count + " similar messages were suppressed)";
+    }
+}
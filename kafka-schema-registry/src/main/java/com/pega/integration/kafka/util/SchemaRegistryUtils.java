@@ -11,7 +11,7 @@ import java.util.regex.Pattern;
 public class SchemaRegistryUtils {
     // Reference: https://www.owasp.org/index.php/OWASP_Validation_Regex_Repository
     private static final String URL_REGEX =
-            "^((((https?|ftps?|gopher|telnet|nntp)://)|(mailto:|news:))" +
+            "^((((https?|ftps?|gopher|telnet|nntp|file)://)|(mailto:|news:|file:))" +
                     "(%[0-9A-Fa-f]{2}|[-()_.!~*';/?:@&=+$,A-Za-z0-9])+)" +
                     "([).!';/?:,][[:blank:]])?$";
 
@@ -0,0 +1,88 @@
+package com.pega.integration.kafka.util;
+
+import org.apache.avro.util.Utf8;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bounded cache which maps the UTF-8 bytes of short strings to one canonical {@link String} instance, so a field with
+ * few distinct values, like a status or a country code, doesn't allocate a new string for every message.
+ * <p>
+ * The cache is a direct-mapped table: a value which hashes to an occupied slot replaces the entry in it. Entries are
+ * immutable, so slots are read and written without locks; a lost update only costs a cache miss. A hit compares the
+ * bytes in place and allocates nothing.
+ */
+public class StringCanonicalizer {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int MAX_CACHED_LENGTH = 64;
+
+    private final Entry[] entries;
+    private final int mask;
+
+    public StringCanonicalizer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    public String canonicalize(CharSequence value) {
+        if (value instanceof Utf8) {
+            Utf8 utf8 = (Utf8) value;
+            return canonicalize(utf8.getBytes(), utf8.getByteLength());
+        }
+
+        return value.toString();
+    }
+
+    public String canonicalize(byte[] bytes, int length) {
+        if (length > MAX_CACHED_LENGTH) {
+            return new String(bytes, 0, length, UTF_8);
+        }
+
+        int hash = hash(bytes, length);
+        int index = hash & mask;
+        Entry entry = entries[index];
+        if (entry != null && entry.hash == hash && entry.matches(bytes, length)) {
+            return entry.value;
+        }
+
+        entry = new Entry(bytes, length, hash);
+        entries[index] = entry;
+        return entry.value;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final byte[] bytes;
+        private final int hash;
+        private final String value;
+
+        private Entry(byte[] bytes, int length, int hash) {
+            this.bytes = new byte[length];
+            System.arraycopy(bytes, 0, this.bytes, 0, length);
+            this.hash = hash;
+            this.value = new String(this.bytes, UTF_8);
+        }
+
+        private boolean matches(byte[] other, int length) {
+            if (bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != other[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
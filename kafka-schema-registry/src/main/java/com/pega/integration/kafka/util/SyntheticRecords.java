@@ -0,0 +1,101 @@
+package com.pega.integration.kafka.util;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates records with a value for every field of a schema, to run the conversion paths before real messages arrive.
+ * <p>
+ * The variant picks the branch of every union, so consecutive variants go through different branches. Recursive
+ * schemas are cut off by taking the null branch and empty collections once the nesting gets too deep.
+ */
+public class SyntheticRecords {
+    private static final int MAX_DEPTH = 8;
+    private static final int COLLECTION_SIZE = 2;
+
+    private SyntheticRecords() {
+        throw new IllegalStateException("Utility class shouldn't be instantiated.");
+    }
+
+    public static GenericRecord generate(Schema recordSchema, int variant) {
+        if (recordSchema.getType() != Schema.Type.RECORD) {
+            throw new AvroSerdeException("Not a record schema: " + recordSchema);
+        }
+
+        return (GenericRecord) generate(recordSchema, variant, 0);
+    }
+
+    private static Object generate(Schema schema, int variant, int depth) {
+        if (depth > 2 * MAX_DEPTH) {
+            throw new AvroSerdeException("Schema " + schema.getFullName() + " has no finite values to generate.");
+        }
+
+        switch (schema.getType()) {
+            case RECORD:
+                GenericRecord record = new GenericData.Record(schema);
+                for (Schema.Field field : schema.getFields()) {
+                    record.put(field.pos(), generate(field.schema(), variant, depth + 1));
+                }
+                return record;
+            case UNION:
+                return generate(branchOf(schema.getTypes(), variant, depth), variant, depth);
+            case ARRAY:
+                int size = depth < MAX_DEPTH ? COLLECTION_SIZE : 0;
+                GenericData.Array<Object> array = new GenericData.Array<>(size, schema);
+                for (int i = 0; i < size; i++) {
+                    array.add(generate(schema.getElementType(), variant + i, depth + 1));
+                }
+                return array;
+            case MAP:
+                if (depth >= MAX_DEPTH) {
+                    return Collections.emptyMap();
+                }
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < COLLECTION_SIZE; i++) {
+                    map.put("key" + i, generate(schema.getValueType(), variant + i, depth + 1));
+                }
+                return map;
+            case ENUM:
+                List<String> symbols = schema.getEnumSymbols();
+                return new GenericData.EnumSymbol(schema, symbols.get(Math.floorMod(variant, symbols.size())));
+            case FIXED:
+                return new GenericData.Fixed(schema, new byte[schema.getFixedSize()]);
+            case BYTES:
+                return ByteBuffer.wrap(new byte[]{(byte) variant});
+            case STRING:
+                return "value" + variant;
+            case INT:
+                return variant;
+            case LONG:
+                return (long) variant;
+            case FLOAT:
+                return (float) variant;
+            case DOUBLE:
+                return (double) variant;
+            case BOOLEAN:
+                return variant % 2 == 0;
+            default:
+                return null;
+        }
+    }
+
+    private static Schema branchOf(List<Schema> branches, int variant, int depth) {
+        if (depth >= MAX_DEPTH) {
+            for (Schema branch : branches) {
+                if (branch.getType() == Schema.Type.NULL) {
+                    return branch;
+                }
+            }
+        }
+
+        return branches.get(Math.floorMod(variant, branches.size()));
+    }
+}
@@ -2,6 +2,7 @@ package com.pega.integration.kafka;
 
 import com.google.common.collect.ImmutableMap;
 import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.integration.kafka.registry.LocalSchemaRegistryClient;
 import com.pega.pegarules.priv.PegaAPI;
 import com.pega.pegarules.pub.database.Database;
 import com.pega.pegarules.pub.runtime.PublicAPI;
@@ -9,15 +10,22 @@ import com.pega.pegarules.pub.util.StringMap;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.Base64;
 import java.util.Collections;
 
 import static com.pega.integration.kafka.AvroSchemaRegistrySerde.*;
 import static com.pega.integration.kafka.testutils.ClipboardPageFactory.buildSchemaRegistryConfiguration;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildPersonSchema;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.mock;
@@ -27,6 +35,9 @@ public class AvroSchemaRegistrySerdeConfigurationTest {
     private static PublicAPI api;
     private static Database database;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private AvroSchemaRegistrySerde objectUnderTest;
 
     @BeforeClass
@@ -53,6 +64,42 @@ public class AvroSchemaRegistrySerdeConfigurationTest {
         objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic"));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void quarantine_failure_policy_without_dead_letter_sink_should_give_error() throws Exception {
+        objectUnderTest = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", "http://mySchemaRegistry")));
+        objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig",
+                FAILURE_POLICY_KEY, "quarantine", BATCH_API_KEY, "true"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void skip_failure_policy_without_batch_api_should_give_error() throws Exception {
+        objectUnderTest = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", "http://mySchemaRegistry")));
+        objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig",
+                FAILURE_POLICY_KEY, "skip"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compression_max_message_size_out_of_range_should_give_error() throws Exception {
+        objectUnderTest = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", "http://mySchemaRegistry")));
+        objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig",
+                PAYLOAD_COMPRESSION_MAX_MESSAGE_SIZE_KEY, "8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void conversion_max_depth_out_of_range_should_give_error() throws Exception {
+        objectUnderTest = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", "http://mySchemaRegistry")));
+        objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig",
+                CONVERSION_MAX_DEPTH_KEY, "0"));
+    }
+
     @Test
     public void schema_should_get_configured_given_a_valid_schema_content() throws Exception {
         // Given
@@ -74,4 +121,40 @@ public class AvroSchemaRegistrySerdeConfigurationTest {
                 .endRecord();
         assertEquals(expectedSchema, objectUnderTest.getSchema());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void data_sets_with_the_same_schema_registry_configuration_share_a_client() throws Exception {
+        // Given
+        AvroSchemaRegistrySerde first = new AvroSchemaRegistrySerde();
+        AvroSchemaRegistrySerde second = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", "http://mySharedSchemaRegistry")));
+
+        // When
+        first.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "YetAnotherClass", TOPIC_NAME_KEY, "yetAnotherTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig"));
+        second.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "OneMoreClass", TOPIC_NAME_KEY, "oneMoreTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MySchemaRegistryConfig",
+                DESERIALIZE_MODE_KEY, DESERIALIZE_MODE_DIRECT));
+
+        // Then
+        assertSame(first.getSchemaRegistryClient(), second.getSchemaRegistryClient());
+    }
+
+    @Test
+    public void file_url_selects_local_schema_registry_client() throws Exception {
+        // Given
+        File schemaDirectory = folder.newFolder("schemas");
+        Files.write(new File(schemaDirectory, "person.avsc").toPath(), buildPersonSchema().toString().getBytes(UTF_8));
+        Files.write(new File(schemaDirectory, LocalSchemaRegistryClient.INDEX_FILE_NAME).toPath(), "localTopic-value 1 5 person.avsc".getBytes(UTF_8));
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde();
+        when(api.getDatabase()).thenReturn(database);
+        when(database.open(any(StringMap.class), anyBoolean())).thenReturn(buildSchemaRegistryConfiguration(api, ImmutableMap.of("URL", schemaDirectory.toURI().toString())));
+
+        // When
+        objectUnderTest.configure(api, ImmutableMap.of(CLASS_NAME_KEY, "Person", TOPIC_NAME_KEY, "localTopic", SCHEMA_REGISTRY_CONFIG_CLASS_KEY, "MyLocalSchemaRegistryConfig"));
+
+        // Then
+        assertTrue(objectUnderTest.getSchemaRegistryClient() instanceof LocalSchemaRegistryClient);
+        assertEquals(buildPersonSchema(), objectUnderTest.getSchemaRegistryClient().getSchemaById(5).rawSchema());
+        objectUnderTest.close();
+    }
+}
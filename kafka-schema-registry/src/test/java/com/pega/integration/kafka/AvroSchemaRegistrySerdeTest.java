@@ -1,26 +1,68 @@
 package com.pega.integration.kafka;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.integration.kafka.compression.ZstdDictionaryCompression;
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.exception.SchemaRegistryException;
+import com.pega.integration.kafka.failure.DeadLetterSink;
+import com.pega.integration.kafka.failure.FailurePolicy;
+import com.pega.integration.kafka.metrics.SerdeMetrics;
 import com.pega.integration.kafka.testutils.SchemaType;
 import com.pega.pegarules.priv.PegaAPI;
 import com.pega.pegarules.pub.clipboard.ClipboardPage;
 import com.pega.pegarules.pub.clipboard.ClipboardProperty;
 import com.pega.pegarules.pub.runtime.PublicAPI;
 import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
 import org.apache.avro.Schema;
+import org.apache.kafka.common.errors.SerializationException;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import static com.pega.integration.kafka.AvroSchemaRegistrySerde.SCHEMA_NAME_FORMAT;
+import static com.pega.integration.kafka.testutils.ClipboardPageComparisonUtils.clipboardPagesAreEqual;
+import static com.pega.integration.kafka.testutils.ClipboardPageFactory.buildClipboardPageCompliantWithSampleCustomerSchema;
 import static com.pega.integration.kafka.testutils.ClipboardPageFactory.buildPersonClipboardPage;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCountrySchema;
 import static com.pega.integration.kafka.testutils.SchemaFactory.buildPersonSchema;
 import static com.pega.integration.kafka.testutils.SchemaFactory.readSchemaFile;
 import static com.pega.integration.kafka.testutils.TestUtils.getFileContentAsString;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class AvroSchemaRegistrySerdeTest {
     private static PublicAPI api;
@@ -65,6 +107,260 @@ public class AvroSchemaRegistrySerdeTest {
         assertArrayEquals(expected, actual);
     }
 
+    @Test
+    public void test_direct_serialization_of_person_page() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useDirectSerialization(true);
+        ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+
+        // When
+        byte[] actual = objectUnderTest.serialize(api, clipboardPage);
+
+        // Then
+        byte[] expected = "\u0000\u0000\u0000\u0000\u0001\u0000\u0012Rigoberto\u0000\u0012Uran Uran\u0000@\u0000\u0012Rigonator".getBytes(UTF_8);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void test_direct_serialization_of_sample_customer_page_matches_record_serialization() throws Exception {
+        // Given: the sample customer schema with an enum field and an optional enum field
+        Schema sampleCustomerSchema = new Schema.Parser().parse(getFileContentAsString("sample_customer_kafka_message_schema.json")
+                .replace("\"name\": \"paymentArrangementStatus\",\n            \"type\": \"string\"",
+                        "\"name\": \"paymentArrangementStatus\", \"type\": {\"type\": \"enum\", \"name\": \"Status\", \"symbols\": [\"ACTIVE\", \"COMPLETED\"]}")
+                .replace("\"name\": \"productSystem\",\n                  \"type\": \"string\"",
+                        "\"name\": \"productSystem\", \"type\": [\"null\", {\"type\": \"enum\", \"name\": \"ProductSystem\", \"symbols\": [\"SAV\", \"DDA\"]}]"));
+        String topic = "sample_customer_with_enums";
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(SAMPLE_CUSTOMER_CLASS, topic, sampleCustomerSchema, schemaRegistryClient);
+        objectUnderTest.useDirectSerialization(true);
+        AvroSchemaRegistrySerde recordSerde = new AvroSchemaRegistrySerde(SAMPLE_CUSTOMER_CLASS, topic, sampleCustomerSchema, schemaRegistryClient);
+        ClipboardPage clipboardPage = buildClipboardPageCompliantWithSampleCustomerSchema(false, api);
+
+        // When
+        byte[] actual = objectUnderTest.serialize(api, clipboardPage);
+
+        // Then
+        assertEquals(Schema.Type.ENUM, sampleCustomerSchema.getField("paymentArrangementStatusChangeEvent").schema()
+                .getField("paymentArrangementStatus").schema().getType());
+        assertEquals(Schema.Type.UNION, sampleCustomerSchema.getField("paymentArrangementStatusChangeEvent").schema()
+                .getField("accountDetails").schema().getField("productSystem").schema().getType());
+        byte[] expected = recordSerde.serialize(api, clipboardPage);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void test_batch_serialization_reports_failed_pages_without_aborting_the_batch() {
+        // Given
+        ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+        List<ClipboardPage> clipboardPages = Arrays.asList(clipboardPage, null, clipboardPage);
+
+        // When
+        BatchResult<byte[]> actual = objectUnderTestOne.serializeBatch(api, clipboardPages);
+
+        // Then
+        byte[] expected = "\u0000\u0000\u0000\u0000\u0001\u0000\u0012Rigoberto\u0000\u0012Uran Uran\u0000@\u0000\u0012Rigonator".getBytes(UTF_8);
+        assertEquals(3, actual.size());
+        assertArrayEquals(expected, actual.get(0));
+        assertArrayEquals(expected, actual.get(2));
+        assertTrue(actual.isFailed(1));
+        assertNull(actual.get(1));
+        assertEquals(Collections.singleton(1), actual.getFailures().keySet());
+    }
+
+    @Test
+    public void test_direct_batch_serialization_of_sample_customer_pages_matches_single_page_serialization() throws Exception {
+        // Given
+        Schema sampleCustomerSchema = readSchemaFile("sample_customer_kafka_message_schema.json");
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(SAMPLE_CUSTOMER_CLASS, SAMPLE_CUSTOMER_TOPIC, sampleCustomerSchema, schemaRegistryClient);
+        objectUnderTest.useDirectSerialization(true);
+        List<ClipboardPage> clipboardPages = Arrays.asList(
+                buildClipboardPageCompliantWithSampleCustomerSchema(false, api),
+                buildClipboardPageCompliantWithSampleCustomerSchema(true, api));
+
+        // When
+        BatchResult<byte[]> actual = objectUnderTest.serializeBatch(api, clipboardPages);
+
+        // Then
+        assertFalse(actual.hasFailures());
+        assertArrayEquals(objectUnderTestTwo.serialize(api, clipboardPages.get(0)), actual.get(0));
+        assertArrayEquals(objectUnderTestTwo.serialize(api, clipboardPages.get(1)), actual.get(1));
+    }
+
+    @Test
+    public void test_async_serialization_of_person_page() throws Exception {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            futures.add(objectUnderTest.serializeAsync(api, buildPersonClipboardPage(api)));
+        }
+
+        // Then
+        byte[] expected = "\u0000\u0000\u0000\u0000\u0001\u0000\u0012Rigoberto\u0000\u0012Uran Uran\u0000@\u0000\u0012Rigonator".getBytes(UTF_8);
+        for (CompletableFuture<byte[]> future : futures) {
+            assertArrayEquals(expected, future.get(10, TimeUnit.SECONDS));
+        }
+        objectUnderTest.close();
+    }
+
+    @Test
+    public void test_async_serialization_runs_on_calling_thread_when_queue_is_full() throws Exception {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useSerializationExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The dictionary lookup on the first compressed message blocks the only serialization thread.
+        objectUnderTest.useCompression(1000, 4096, task -> {
+            started.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            task.run();
+        });
+        CompletableFuture<byte[]> blocked = objectUnderTest.serializeAsync(api, buildPersonClipboardPage(api));
+        started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<byte[]> queued = objectUnderTest.serializeAsync(api, buildPersonClipboardPage(api));
+
+        // When
+        CompletableFuture<byte[]> overflowing = objectUnderTest.serializeAsync(api, buildPersonClipboardPage(api));
+
+        // Then
+        assertTrue(overflowing.isDone());
+        assertFalse(queued.isDone());
+        release.countDown();
+        assertArrayEquals(overflowing.get(), queued.get(10, TimeUnit.SECONDS));
+        assertArrayEquals(overflowing.get(), blocked.get(10, TimeUnit.SECONDS));
+        objectUnderTest.close();
+    }
+
+    @Test
+    public void test_async_serialization_reads_page_on_calling_thread() throws Exception {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+        Set<Thread> pageThreads = ConcurrentHashMap.newKeySet();
+        ClipboardPage threadRecordingPage = (ClipboardPage) Proxy.newProxyInstance(ClipboardPage.class.getClassLoader(), new Class<?>[]{ClipboardPage.class},
+                (proxy, method, args) -> {
+                    pageThreads.add(Thread.currentThread());
+                    return method.invoke(clipboardPage, args);
+                });
+
+        // When
+        byte[] actual = objectUnderTest.serializeAsync(api, threadRecordingPage).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertArrayEquals(objectUnderTestOne.serialize(api, clipboardPage), actual);
+        assertEquals(Collections.singleton(Thread.currentThread()), pageThreads);
+        objectUnderTest.close();
+    }
+
+    @Test
+    public void test_serialization_and_deserialization_are_recorded_in_metrics() {
+        // Given
+        SerdeMetrics metrics = objectUnderTestOne.getMetrics();
+        long serializedRecords = metrics.getSerializedRecords();
+        long deserializedRecords = metrics.getDeserializedRecords();
+        long bytesIn = metrics.getBytesIn();
+
+        // When
+        byte[] data = objectUnderTestOne.serialize(api, buildPersonClipboardPage(api));
+        objectUnderTestOne.deserialize(api, data);
+
+        // Then
+        assertEquals(serializedRecords + 1, metrics.getSerializedRecords());
+        assertEquals(deserializedRecords + 1, metrics.getDeserializedRecords());
+        assertEquals(bytesIn + data.length, metrics.getBytesIn());
+        assertTrue(metrics.getSerializeLatency().getCount() > 0);
+    }
+
+    @Test
+    public void test_warm_up_prefetches_latest_schemas_without_counting_records() throws Exception {
+        // Given
+        MockSchemaRegistryClient client = new MockSchemaRegistryClient();
+        Schema personSchema = buildPersonSchema();
+        Schema citySchema = buildCitySchema();
+        client.register("person_warm_up-value", citySchema, 1, 21);
+        client.register("person_warm_up-value", personSchema, 2, 22);
+        client.register("person_warm_up-value", buildCountrySchema(), 3, 23);
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, "person_warm_up", personSchema, client);
+        objectUnderTest.useDirectDeserialization(true);
+
+        // When
+        objectUnderTest.warmUp(api, 2, 3);
+
+        // Then
+        assertEquals(2, objectUnderTest.getSchemaCacheStats().missCount());
+        assertEquals(0, objectUnderTest.getMetrics().getSerializedRecords());
+        assertEquals(0, objectUnderTest.getMetrics().getDeserializedRecords());
+        assertEquals(0, objectUnderTest.getMetrics().getSerializeLatency().getCount());
+        assertEquals(0, objectUnderTest.getMetrics().getDeserializeLatency().getCount());
+        assertEquals(0, objectUnderTest.getMetrics().getRegistryFetchLatency().getCount());
+        objectUnderTest.deserialize(api, objectUnderTest.serialize(api, buildPersonClipboardPage(api)));
+        assertEquals(2, objectUnderTest.getSchemaCacheStats().missCount());
+    }
+
+    @Test
+    public void test_record_deserialization_looks_writer_schemas_up_in_the_schema_cache() throws Exception {
+        // Given
+        SchemaRegistryClient client = spy(new MockSchemaRegistryClient());
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, "person_record", buildPersonSchema(), client);
+        byte[] message = objectUnderTest.serialize(api, buildPersonClipboardPage(api));
+
+        // When
+        objectUnderTest.deserialize(api, message);
+        ClipboardPage page = objectUnderTest.deserialize(api, message);
+
+        // Then
+        assertEquals("Rigoberto", page.getString("firstName"));
+        assertEquals(1, objectUnderTest.getSchemaCacheStats().missCount());
+        assertEquals(1, objectUnderTest.getSchemaCacheStats().hitCount());
+        verify(client, times(1)).getSchemaById(anyInt());
+        verify(client, never()).getSchemaBySubjectAndId(anyString(), anyInt());
+    }
+
+    @Test
+    public void test_warm_up_never_registers_the_configured_schema() throws Exception {
+        // Given
+        MockSchemaRegistryClient client = new MockSchemaRegistryClient();
+        client.register("person_consumer-value", buildCitySchema(), 1, 31);
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, "person_consumer", buildPersonSchema(), client);
+
+        // When
+        objectUnderTest.warmUp(api, 1, 3);
+
+        // Then
+        assertEquals(Collections.singletonList(1), client.getAllVersions("person_consumer-value"));
+        assertEquals(1, objectUnderTest.getSchemaCacheStats().missCount());
+        assertEquals(0, objectUnderTest.getMetrics().getSerializeLatency().getCount());
+        assertEquals(0, objectUnderTest.getMetrics().getRegistryFetchLatency().getCount());
+    }
+
+    @Test
+    public void test_compressed_serialization_of_person_page_is_deserialized_transparently() {
+        // Given
+        AvroSchemaRegistrySerde producer = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        producer.useCompression(200, 1024, Runnable::run);
+        for (int i = 0; i < 200; i++) {
+            ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+            clipboardPage.putString("firstName", "Rider " + i);
+            producer.serialize(api, clipboardPage);
+        }
+        ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+        byte[] uncompressed = objectUnderTestOne.serialize(api, clipboardPage);
+
+        // When
+        byte[] compressed = producer.serialize(api, clipboardPage);
+        ClipboardPage page = objectUnderTestOne.deserialize(api, compressed);
+
+        // Then
+        assertEquals(ZstdDictionaryCompression.MAGIC_BYTE, compressed[0]);
+        assertTrue(compressed.length < uncompressed.length);
+        assertEquals("Rigoberto", page.getString("firstName"));
+        assertEquals("Uran Uran", page.getString("lastName"));
+        assertEquals(32, page.getInteger("age"));
+    }
+
     @Test
     public void test_deserialization_of_person_record() {
         // Given
@@ -81,6 +377,236 @@ public class AvroSchemaRegistrySerdeTest {
         assertEquals("Balaverde", page.getString("nickName"));
     }
 
+    @Test
+    public void test_parallel_batch_deserialization_preserves_input_order_and_reports_failed_messages() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useDeserializationPool(new ForkJoinPool(4));
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+            clipboardPage.putString("firstName", "Rider " + i);
+            messages.add(objectUnderTestOne.serialize(api, clipboardPage));
+        }
+        messages.set(25, "invalid".getBytes(UTF_8));
+
+        // When
+        BatchResult<ClipboardPage> actual = objectUnderTest.deserializeBatch(api, messages);
+
+        // Then
+        assertEquals(50, actual.size());
+        assertEquals(Collections.singleton(25), actual.getFailures().keySet());
+        assertTrue(actual.getFailures().get(25) instanceof SerializationException);
+        for (int i = 0; i < 50; i++) {
+            if (i != 25) {
+                assertEquals(PERSON_CLASS, actual.get(i).getString("pxObjClass"));
+                assertEquals("Rider " + i, actual.get(i).getString("firstName"));
+            }
+        }
+    }
+
+    @Test
+    public void test_parallel_batch_deserialization_populates_pages_on_calling_thread() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useDeserializationPool(new ForkJoinPool(4));
+        objectUnderTest.useDirectDeserialization(true);
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ClipboardPage clipboardPage = buildPersonClipboardPage(api);
+            clipboardPage.putString("firstName", "Rider " + i);
+            messages.add(objectUnderTestOne.serialize(api, clipboardPage));
+        }
+        Set<Thread> pageThreads = ConcurrentHashMap.newKeySet();
+        PublicAPI threadRecordingApi = mock(PublicAPI.class);
+        when(threadRecordingApi.createPage(anyString(), anyString())).thenAnswer(invocation -> {
+            ClipboardPage page = api.createPage(PERSON_CLASS, "");
+            return Proxy.newProxyInstance(ClipboardPage.class.getClassLoader(), new Class<?>[]{ClipboardPage.class}, (proxy, method, args) -> {
+                pageThreads.add(Thread.currentThread());
+                return method.invoke(page, args);
+            });
+        });
+
+        // When
+        BatchResult<ClipboardPage> actual = objectUnderTest.deserializeBatch(threadRecordingApi, messages);
+
+        // Then
+        assertTrue(actual.getFailures().isEmpty());
+        assertEquals(Collections.singleton(Thread.currentThread()), pageThreads);
+        for (int i = 0; i < 50; i++) {
+            assertEquals("Rider " + i, actual.get(i).getString("firstName"));
+        }
+    }
+
+    @Test
+    public void test_projected_deserialization_of_person_record() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useProjection(ImmutableSet.of("firstName", "age"));
+        byte[] messageValueBytes = "\u0000\u0000\u0000\u0000\u0001\u0000\u0012Alejandro\u0000\u0010Valverde\u0000N\u0000\u0012Balaverde".getBytes(UTF_8);
+
+        // When
+        ClipboardPage recordPage = objectUnderTest.deserialize(api, messageValueBytes);
+        objectUnderTest.useDirectDeserialization(true);
+        ClipboardPage directPage = objectUnderTest.deserialize(api, messageValueBytes);
+
+        // Then
+        for (ClipboardPage page : Arrays.asList(recordPage, directPage)) {
+            assertEquals("Alejandro", page.getString("firstName"));
+            assertEquals(39, page.getInteger("age"));
+            assertNull(page.getIfPresent("lastName"));
+            assertNull(page.getIfPresent("nickName"));
+        }
+    }
+
+    @Test
+    public void test_direct_deserialization_of_person_record() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useDirectDeserialization(true);
+        byte[] messageValueBytes = "\u0000\u0000\u0000\u0000\u0001\u0000\u0012Alejandro\u0000\u0010Valverde\u0000N\u0000\u0012Balaverde".getBytes(UTF_8);
+
+        // When
+        ClipboardPage page = objectUnderTest.deserialize(api, messageValueBytes);
+
+        // Then
+        assertEquals(PERSON_CLASS, page.getString("pxObjClass"));
+        assertEquals("Alejandro", page.getString("firstName"));
+        assertEquals("Valverde", page.getString("lastName"));
+        assertEquals(39, page.getInteger("age"));
+        assertEquals("Balaverde", page.getString("nickName"));
+    }
+
+    @Test
+    public void test_direct_deserialization_of_sample_customer_record_matches_record_deserialization() throws Exception {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(SAMPLE_CUSTOMER_CLASS, SAMPLE_CUSTOMER_TOPIC, readSchemaFile("sample_customer_kafka_message_schema.json"), schemaRegistryClient);
+        objectUnderTest.useDirectDeserialization(true);
+        byte[] messageValueBytes = BaseEncoding.base16().decode(getFileContentAsString("sample_customer_kafka_message.hex"));
+
+        // When
+        ClipboardPage actual = objectUnderTest.deserialize(api, messageValueBytes);
+
+        // Then
+        ClipboardPage expected = objectUnderTestTwo.deserialize(api, messageValueBytes);
+        assertTrue(clipboardPagesAreEqual(expected, actual));
+        assertTrue(clipboardPagesAreEqual(actual, expected));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void test_direct_deserialization_of_message_without_magic_byte() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useDirectDeserialization(true);
+
+        // When
+        objectUnderTest.deserialize(api, "\u0001\u0000\u0000\u0000\u0001\u0000".getBytes(UTF_8));
+    }
+
+    @Test
+    public void test_skip_failure_policy_drops_bad_records_and_counts_them() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useFailurePolicy(FailurePolicy.SKIP, null);
+        long skippedRecords = objectUnderTest.getMetrics().getSkippedRecords();
+
+        // When
+        BatchResult<byte[]> messages = objectUnderTest.serializeBatch(api, Arrays.asList(buildPersonClipboardPage(api), null));
+        BatchResult<ClipboardPage> pages = objectUnderTest.deserializeBatch(api,
+                Arrays.asList("\u0001\u0000\u0000\u0000\u0001\u0000".getBytes(UTF_8), messages.get(0)));
+
+        // Then
+        assertTrue(messages.isFailed(1));
+        assertTrue(messages.getFailures().get(1) instanceof AvroSerdeException);
+        assertTrue(pages.isFailed(0));
+        assertTrue(pages.getFailures().get(0) instanceof SerializationException);
+        assertFalse(pages.isFailed(1));
+        assertEquals(skippedRecords + 2, objectUnderTest.getMetrics().getSkippedRecords());
+    }
+
+    @Test
+    public void test_skip_failure_policy_doesnt_apply_to_single_records() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useFailurePolicy(FailurePolicy.SKIP, null);
+        long skippedRecords = objectUnderTest.getMetrics().getSkippedRecords();
+
+        // When
+        AvroSerdeException serializationFailure = null;
+        SerializationException deserializationFailure = null;
+        try {
+            objectUnderTest.serialize(api, null);
+        } catch (AvroSerdeException e) {
+            serializationFailure = e;
+        }
+        try {
+            objectUnderTest.deserialize(api, "\u0001\u0000\u0000\u0000\u0001\u0000".getBytes(UTF_8));
+        } catch (SerializationException e) {
+            deserializationFailure = e;
+        }
+
+        // Then
+        assertNotNull(serializationFailure);
+        assertNotNull(deserializationFailure);
+        assertEquals(skippedRecords, objectUnderTest.getMetrics().getSkippedRecords());
+    }
+
+    @Test
+    public void test_registry_failure_is_thrown_whatever_the_failure_policy() throws Exception {
+        // Given
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+        when(client.getSchemaById(41)).thenThrow(new RestClientException("Schema not found", 404, 40403));
+        when(client.getSchemaById(42)).thenThrow(new RestClientException("Internal Server Error", 500, 50001));
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), client);
+        objectUnderTest.useFailurePolicy(FailurePolicy.SKIP, null);
+        long skippedRecords = objectUnderTest.getMetrics().getSkippedRecords();
+
+        // When
+        BatchResult<ClipboardPage> unknownSchema = objectUnderTest.deserializeBatch(api, Collections.singletonList(new byte[]{0, 0, 0, 0, 41, 0}));
+        SchemaRegistryException registryFailure = null;
+        try {
+            objectUnderTest.deserializeBatch(api, Collections.singletonList(new byte[]{0, 0, 0, 0, 42, 0}));
+        } catch (SchemaRegistryException e) {
+            registryFailure = e;
+        }
+
+        // Then
+        assertTrue(unknownSchema.isFailed(0));
+        assertNotNull(registryFailure);
+        assertEquals(skippedRecords + 1, objectUnderTest.getMetrics().getSkippedRecords());
+    }
+
+    @Test
+    public void test_quarantine_failure_policy_hands_bad_records_to_dead_letter_sink() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        DeadLetterSink sink = mock(DeadLetterSink.class);
+        objectUnderTest.useFailurePolicy(FailurePolicy.QUARANTINE, sink);
+        byte[] badMessage = "\u0001\u0000\u0000\u0000\u0001\u0000".getBytes(UTF_8);
+        long quarantinedRecords = objectUnderTest.getMetrics().getQuarantinedRecords();
+
+        // When
+        BatchResult<byte[]> messages = objectUnderTest.serializeBatch(api, Arrays.asList(buildPersonClipboardPage(api), null));
+        BatchResult<ClipboardPage> pages = objectUnderTest.deserializeBatch(api, Collections.singletonList(badMessage));
+
+        // Then
+        assertTrue(messages.isFailed(1));
+        assertTrue(pages.isFailed(0));
+        verify(sink).serializeFailed(eq(PERSON_TOPIC), isNull(ClipboardPage.class), any(AvroSerdeException.class));
+        verify(sink).deserializeFailed(eq(PERSON_TOPIC), same(badMessage), any(Exception.class));
+        assertEquals(quarantinedRecords + 2, objectUnderTest.getMetrics().getQuarantinedRecords());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void test_fail_failure_policy_throws_for_bad_message() {
+        // Given
+        AvroSchemaRegistrySerde objectUnderTest = new AvroSchemaRegistrySerde(PERSON_CLASS, PERSON_TOPIC, buildPersonSchema(), schemaRegistryClient);
+        objectUnderTest.useFailurePolicy(FailurePolicy.FAIL, null);
+
+        // When
+        objectUnderTest.deserialize(api, "\u0001\u0000\u0000\u0000\u0001\u0000".getBytes(UTF_8));
+    }
+
     @Test
     public void test_deserialization_of_sample_customer_record() throws Exception {
         // Given
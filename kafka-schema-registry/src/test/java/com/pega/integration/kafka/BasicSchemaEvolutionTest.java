@@ -81,6 +81,59 @@ public class BasicSchemaEvolutionTest {
         assertEquals("201620162016", evolvedClipboardPage.getString("accountNumber"));
     }
 
+    @Test
+    public void test_schema_evolution_with_the_writer_schema() {
+        // Given
+        AvroSchemaRegistrySerde serde = new AvroSchemaRegistrySerde(BANK_ACCOUNT_CLASS, BANK_ACCOUNT_TOPIC, buildInitialBankAccountSchema(), schemaRegistryClient);
+        serde.useSchemaEvolution(true);
+
+        // When
+        ClipboardPage page = serde.deserialize(api, initialKafkaMessage);
+        ClipboardPage directlyDeserializedPage = directlyDeserializingSerde(buildInitialBankAccountSchema()).deserialize(api, initialKafkaMessage);
+
+        // Then
+        assertEquals(3, page.size());
+        assertEquals("Gregory van Avermaet", page.getString("accountHolder"));
+        assertEquals("201620162016", page.getString("accountNumber"));
+        assertEquals(3, directlyDeserializedPage.size());
+        assertEquals("Gregory van Avermaet", directlyDeserializedPage.getString("accountHolder"));
+        assertEquals("201620162016", directlyDeserializedPage.getString("accountNumber"));
+    }
+
+    @Test(expected = org.apache.kafka.common.errors.SerializationException.class)
+    public void test_direct_deserialization_with_an_incompatible_schema() {
+        directlyDeserializingSerde(buildIncompatibleBankAccountSchema()).deserialize(api, initialKafkaMessage);
+    }
+
+    @Test
+    public void test_direct_deserialization_when_a_new_field_is_added() {
+        // When
+        ClipboardPage evolvedClipboardPage = directlyDeserializingSerde(buildBankAccountSchemaWithANewField()).deserialize(api, initialKafkaMessage);
+
+        // Then
+        assertEquals(4, evolvedClipboardPage.size());
+        assertEquals("Gregory van Avermaet", evolvedClipboardPage.getString("accountHolder"));
+        assertEquals("201620162016", evolvedClipboardPage.getString("accountNumber"));
+        assertEquals("", evolvedClipboardPage.getString("iban"));
+    }
+
+    @Test
+    public void test_direct_deserialization_when_an_existing_field_is_removed() {
+        // When
+        ClipboardPage evolvedClipboardPage = directlyDeserializingSerde(buildBankAccountSchemaByRemovingAnExistingField()).deserialize(api, initialKafkaMessage);
+
+        // Then
+        assertEquals(2, evolvedClipboardPage.size());
+        assertEquals("201620162016", evolvedClipboardPage.getString("accountNumber"));
+    }
+
+    private static AvroSchemaRegistrySerde directlyDeserializingSerde(Schema readerSchema) {
+        AvroSchemaRegistrySerde serde = new AvroSchemaRegistrySerde(BANK_ACCOUNT_CLASS, BANK_ACCOUNT_TOPIC, readerSchema, schemaRegistryClient);
+        serde.useSchemaEvolution(true);
+        serde.useDirectDeserialization(true);
+        return serde;
+    }
+
     private void assessmentsBeforeSchemaEvolution() {
         objectUnderTest.useSchemaEvolution(false);
         ClipboardPage initialClipboardPage = objectUnderTest.deserialize(api, initialKafkaMessage);
@@ -1,7 +1,9 @@
 package com.pega.integration.kafka;
 
+import com.google.common.collect.ImmutableList;
 import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
 import com.pega.integration.kafka.converter.ClipboardPageToGenericRecordConverter;
+import com.pega.integration.kafka.converter.plan.NestingDepth;
 import com.pega.integration.kafka.exception.AvroSerdeException;
 import com.pega.integration.kafka.testutils.GenericRecordFactory;
 import com.pega.pegarules.priv.PegaAPI;
@@ -20,11 +22,15 @@ import java.util.Map;
 import static com.pega.integration.kafka.testutils.ClipboardPageComparisonUtils.EPSILON;
 import static com.pega.integration.kafka.testutils.ClipboardPageFactory.*;
 import static com.pega.integration.kafka.testutils.SchemaFactory.*;
+import static com.pega.integration.kafka.testutils.TestUtils.callWithStackSize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 public class ClipboardPageToGenericRecordConverterTest {
+    private static final long SMALL_STACK_SIZE = 256 * 1024;
+
     private static PublicAPI api;
     private static ClipboardPageToGenericRecordConverter converter;
 
@@ -98,6 +104,88 @@ public class ClipboardPageToGenericRecordConverterTest {
         assertEquals(821752, embeddedRecord.get("population"));
     }
 
+    @Test
+    public void test_properties_outside_of_schema_are_ignored() {
+        // Given
+        ClipboardPage clipboardPage = buildCityClipboardPage(api);
+        clipboardPage.putString("mayor", "Sharon Dijksma");
+        Schema schema = buildCitySchema();
+
+        // When
+        GenericRecord record = converter.convertClipboardPageToGenericRecord(clipboardPage, schema);
+
+        // Then
+        assertEquals(4, record.getSchema().getFields().size());
+        assertEquals("Utrecht", record.get("name"));
+        assertNull(record.getSchema().getField("mayor"));
+    }
+
+    @Test
+    public void test_conversion_of_recursive_schema() {
+        // Given
+        Schema schema = buildTreeNodeSchema();
+        ClipboardPage leaf = api.createPage("TreeNode", "");
+        leaf.putString("label", "leaf");
+        ClipboardPage root = api.createPage("TreeNode", "");
+        root.putString("label", "root");
+        root.putObject("children", ImmutableList.of(leaf));
+
+        // When
+        GenericRecord record = converter.convertClipboardPageToGenericRecord(root, schema);
+
+        // Then
+        assertEquals("root", record.get("label"));
+        GenericArray<GenericRecord> children = (GenericArray<GenericRecord>) record.get("children");
+        assertEquals(1, children.size());
+        assertEquals("leaf", children.get(0).get("label"));
+        assertNull(children.get(0).get("children"));
+    }
+
+    @Test
+    public void recursive_records_nested_up_to_the_maximum_depth_are_converted_on_a_small_stack() throws Exception {
+        // Given
+        Schema schema = buildLinkedNodeSchema();
+        ClipboardPage page = linkedNodePages(NestingDepth.DEFAULT_MAX_DEPTH);
+
+        // When
+        GenericRecord record = callWithStackSize(SMALL_STACK_SIZE, () -> converter.convertClipboardPageToGenericRecord(page, schema));
+
+        // Then
+        int depth = 0;
+        for (GenericRecord node = record; node != null; node = (GenericRecord) node.get("next")) {
+            assertEquals(depth++, node.get("value"));
+        }
+        assertEquals(NestingDepth.DEFAULT_MAX_DEPTH, depth);
+    }
+
+    @Test
+    public void recursive_records_nested_up_to_the_depth_limit_are_converted_on_a_small_stack() throws Exception {
+        // Given
+        ClipboardPageToGenericRecordConverter objectUnderTest = new ClipboardPageToGenericRecordConverter(NestingDepth.MAX_DEPTH_LIMIT);
+        Schema schema = buildLinkedNodeSchema();
+        ClipboardPage page = linkedNodePages(NestingDepth.MAX_DEPTH_LIMIT);
+
+        // When
+        GenericRecord record = callWithStackSize(SMALL_STACK_SIZE, () -> objectUnderTest.convertClipboardPageToGenericRecord(page, schema));
+
+        // Then
+        int depth = 0;
+        for (GenericRecord node = record; node != null; node = (GenericRecord) node.get("next")) {
+            depth++;
+        }
+        assertEquals(NestingDepth.MAX_DEPTH_LIMIT, depth);
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void recursive_records_nested_deeper_than_the_maximum_depth_should_give_error() {
+        // Given
+        ClipboardPageToGenericRecordConverter objectUnderTest = new ClipboardPageToGenericRecordConverter(10);
+        ClipboardPage page = linkedNodePages(11);
+
+        // When
+        objectUnderTest.convertClipboardPageToGenericRecord(page, buildLinkedNodeSchema());
+    }
+
     @Test
     public void test_conversion_of_big_decimal_value() {
         // Given: ClipboardPage with big decimal field and the corresponding schema
@@ -232,4 +320,18 @@ public class ClipboardPageToGenericRecordConverterTest {
         assertEquals("56", accountDetails.get("productCode"));
         assertEquals("200014661455", accountDetails.get("accountNumber"));
     }
-}
\ No newline at end of file
+
+    private static ClipboardPage linkedNodePages(int depth) {
+        ClipboardPage next = null;
+        for (int value = depth - 1; value >= 0; value--) {
+            ClipboardPage node = api.createPage("LinkedNode", "");
+            node.putObject("value", value);
+            if (next != null) {
+                node.putPage("next", next);
+            }
+            next = node;
+        }
+
+        return next;
+    }
+}
@@ -149,10 +149,11 @@ public class ComprehensiveAvroConversionTest {
         GenericRecord enumGroupRecord = (GenericRecord) record.get("enumGroup");
         ClipboardPage enumGroupPage = initialPage.getProperty("enumGroup").getPageValue();
 
-        assertEquals(enumGroupPage.getString("requiredEnum"), enumGroupRecord.get("requiredEnum"));
+        assertTrue(enumGroupRecord.get("requiredEnum") instanceof GenericData.EnumSymbol);
+        assertEquals(enumGroupPage.getString("requiredEnum"), enumGroupRecord.get("requiredEnum").toString());
 
         for (String fieldName : ImmutableList.of("optionalEnum", "optionalEnumWithDefault")) {
-            Object actual = enumGroupRecord.get(fieldName) == null ? "" : enumGroupRecord.get(fieldName);
+            Object actual = enumGroupRecord.get(fieldName) == null ? "" : enumGroupRecord.get(fieldName).toString();
             assertEquals(enumGroupPage.getString(fieldName), actual);
         }
     }
@@ -192,7 +193,7 @@ public class ComprehensiveAvroConversionTest {
         Object actual = unionGroupRecord.get("unionRecordWithDefault") == null ? false : ((GenericRecord) unionGroupRecord.get("unionRecordWithDefault")).get("nestedRequiredBoolean");
         assertEquals(expected, actual);
 
-        assertEquals(unionGroupPage.getString("unionEnumWithDefault"), unionGroupRecord.get("unionEnumWithDefault") == null ? "" : unionGroupRecord.get("unionEnumWithDefault"));
+        assertEquals(unionGroupPage.getString("unionEnumWithDefault"), unionGroupRecord.get("unionEnumWithDefault") == null ? "" : unionGroupRecord.get("unionEnumWithDefault").toString());
         assertTrue(primitiveArraysAreEqual(unionGroupPage.getProperty("unionArrayWithDefault"), (GenericData.Array) unionGroupRecord.get("unionArrayWithDefault")));
         assertTrue(primitiveMapsAreEqual(unionGroupPage.getProperty("unionMapWithDefault"), (Map) unionGroupRecord.get("unionMapWithDefault")));
     }
@@ -0,0 +1,156 @@
+package com.pega.integration.kafka;
+
+import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.integration.kafka.converter.ClipboardPageToGenericRecordConverter;
+import com.pega.integration.kafka.converter.GenericRecordToClipboardPageConverter;
+import com.pega.integration.kafka.testutils.RandomPageGenerator;
+import com.pega.integration.kafka.testutils.SchemaFactory;
+import com.pega.pegarules.priv.PegaAPI;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.runtime.PublicAPI;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+import static com.pega.integration.kafka.testutils.PropertyInfoProvider.createPropertyInfoForComprehensiveAvroRecord;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Fails when a conversion allocates more bytes per record than the budget in {@value #BUDGETS_RESOURCE}, which holds
+ * two entries per schema: {@code <schema>.pageToRecord} and {@code <schema>.recordToPage}. Budgets are the measured
+ * allocation with some headroom for the random values of the pages. When a change lowers the allocation, lower the
+ * budget with it, so the improvement can't be lost unnoticed.
+ * <p>
+ * Allocation depends on the JIT, escape analysis and agents like code coverage, so the test only runs when the
+ * {@value #ENABLED_PROPERTY} system property is {@code true}, e.g. with {@code gradle test -Pallocation.budgets}.
+ */
+@RunWith(Parameterized.class)
+public class ConversionAllocationBudgetTest {
+    private static final String ENABLED_PROPERTY = "allocation.budgets";
+    private static final String BUDGETS_RESOURCE = "allocation_budgets.properties";
+    private static final int SAMPLE_SIZE = 64;
+    private static final int WARM_UP_CONVERSIONS = 5_000;
+    private static final int MEASURED_CONVERSIONS = 2_000;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final Properties BUDGETS = new Properties();
+
+    private final String schemaName;
+    private final Schema schema;
+    private final PublicAPI api;
+
+    public ConversionAllocationBudgetTest(String schemaName, Schema schema, PublicAPI api) {
+        this.schemaName = schemaName;
+        this.schema = schema;
+        this.api = api;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> schemas() throws Exception {
+        PublicAPI api = new DSMPegaAPI(mock(PegaAPI.class));
+        return Arrays.asList(
+                new Object[]{"comprehensive", SchemaFactory.readSchemaFile("comprehensive_avro_schema.json"),
+                        new DSMPegaAPI(mock(PegaAPI.class), createPropertyInfoForComprehensiveAvroRecord())},
+                new Object[]{"person", SchemaFactory.buildPersonSchema(), api},
+                new Object[]{"embeddedPages", SchemaFactory.buildSchemaForClipboardPageWithEmbeddedPages(), api},
+                new Object[]{"flat", SchemaFactory.buildFlatSchema(), api},
+                new Object[]{"deeplyNested", SchemaFactory.buildDeeplyNestedSchema(8), api},
+                new Object[]{"arrayHeavy", SchemaFactory.buildArrayHeavySchema(), api},
+                new Object[]{"unionHeavy", SchemaFactory.buildUnionHeavySchema(), api});
+    }
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        Assume.assumeTrue("Allocation budgets are only checked with -D" + ENABLED_PROPERTY + "=true.", Boolean.getBoolean(ENABLED_PROPERTY));
+        try (InputStream budgets = ConversionAllocationBudgetTest.class.getClassLoader().getResourceAsStream(BUDGETS_RESOURCE)) {
+            assertNotNull(BUDGETS_RESOURCE + " is missing.", budgets);
+            BUDGETS.load(budgets);
+        }
+    }
+
+    @Test
+    public void page_to_record_conversion_stays_within_allocation_budget() {
+        // Given
+        ClipboardPageToGenericRecordConverter converter = new ClipboardPageToGenericRecordConverter();
+        ClipboardPage[] pages = randomPages();
+
+        // When
+        long bytesPerRecord = allocatedBytesPerConversion(i -> converter.convertClipboardPageToGenericRecord(pages[i % SAMPLE_SIZE], schema));
+
+        // Then
+        assertWithinBudget("pageToRecord", bytesPerRecord);
+    }
+
+    @Test
+    public void record_to_page_conversion_stays_within_allocation_budget() {
+        // Given
+        ClipboardPageToGenericRecordConverter pageToRecordConverter = new ClipboardPageToGenericRecordConverter();
+        GenericRecordToClipboardPageConverter converter = new GenericRecordToClipboardPageConverter();
+        ClipboardPage[] pages = randomPages();
+        GenericRecord[] records = new GenericRecord[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            records[i] = pageToRecordConverter.convertClipboardPageToGenericRecord(pages[i], schema);
+        }
+
+        // When
+        long bytesPerRecord = allocatedBytesPerConversion(i -> converter.convertGenericRecordToClipboardPage(api, records[i % SAMPLE_SIZE], schema.getName()));
+
+        // Then
+        assertWithinBudget("recordToPage", bytesPerRecord);
+    }
+
+    private ClipboardPage[] randomPages() {
+        RandomPageGenerator generator = new RandomPageGenerator();
+        ClipboardPage[] pages = new ClipboardPage[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            pages[i] = generator.populate(api, schema, schema.getName());
+        }
+
+        return pages;
+    }
+
+    /**
+     * Runs the conversion until it is compiled and then measures the bytes the current thread allocates, averaged over
+     * all samples.
+     */
+    private static long allocatedBytesPerConversion(IntConsumer conversion) {
+        Assume.assumeTrue("Thread allocation isn't measured by this JVM.", THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        Assume.assumeTrue("Thread allocation isn't measured by this JVM.", threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < WARM_UP_CONVERSIONS; i++) {
+            conversion.accept(i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CONVERSIONS; i++) {
+            conversion.accept(i);
+        }
+
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - start) / MEASURED_CONVERSIONS;
+    }
+
+    private void assertWithinBudget(String conversion, long bytesPerRecord) {
+        String key = schemaName + "." + conversion;
+        String budget = BUDGETS.getProperty(key);
+        assertNotNull("No allocation budget for '" + key + "', measured " + bytesPerRecord + " bytes per record.", budget);
+        assertTrue("Conversion '" + key + "' allocates " + bytesPerRecord + " bytes per record, over the budget of " + budget.trim() + " bytes.",
+                bytesPerRecord <= Long.parseLong(budget.trim()));
+    }
+}
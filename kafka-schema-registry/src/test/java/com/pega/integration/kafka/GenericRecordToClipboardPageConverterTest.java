@@ -1,25 +1,43 @@
 package com.pega.integration.kafka;
 
+import com.google.common.collect.ImmutableMap;
 import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
 import com.pega.integration.kafka.converter.GenericRecordToClipboardPageConverter;
+import com.pega.integration.kafka.converter.plan.NestingDepth;
+import com.pega.integration.kafka.exception.AvroSerdeException;
 import com.pega.pegarules.priv.PegaAPI;
 import com.pega.pegarules.pub.clipboard.ClipboardPage;
 import com.pega.pegarules.pub.clipboard.ClipboardProperty;
 import com.pega.pegarules.pub.runtime.PublicAPI;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
 import static com.pega.integration.kafka.testutils.ClipboardPageComparisonUtils.EPSILON;
 import static com.pega.integration.kafka.testutils.GenericRecordFactory.buildEmbeddedGenericRecord;
 import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildLinkedNodeSchema;
+import static com.pega.integration.kafka.testutils.TestUtils.callWithStackSize;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 
 public class GenericRecordToClipboardPageConverterTest {
+    private static final long SMALL_STACK_SIZE = 256 * 1024;
+
     private static PublicAPI api;
     private static GenericRecordToClipboardPageConverter converter;
 
@@ -80,4 +98,122 @@ public class GenericRecordToClipboardPageConverterTest {
         assertEquals("object array, item 2", embeddedObjectArray.getPageValue(2).getString("stringField"));
         assertEquals(2, embeddedObjectArray.getPageValue(2).getInteger("integerField"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_conversion_of_decoded_record_with_union_and_map_fields() throws Exception {
+        // Given
+        Schema schema = SchemaBuilder.record("Measurement").fields()
+                .name("reading").type().unionOf().nullType().and().longType().and().intType().and().stringType().endUnion().noDefault()
+                .name("unit").type().unionOf().nullType().and().longType().and().stringType().endUnion().noDefault()
+                .name("tags").type().map().values().stringType().noDefault()
+                .endRecord();
+        GenericRecord record = new GenericRecordBuilder(schema).set("reading", 42).set("unit", "123")
+                .set("tags", ImmutableMap.of("sensor", "s1")).build();
+        GenericRecord decoded = encodeAndDecode(record);
+
+        // When
+        ClipboardPage actual = converter.convertGenericRecordToClipboardPage(api, decoded, "Measurement");
+
+        // Then
+        assertEquals(42, actual.getInteger("reading"));
+        assertEquals("123", actual.getString("unit"));
+        assertEquals("s1", actual.getProperty("tags").getPropertyValue("sensor").getStringValue());
+    }
+
+    @Test
+    public void recursive_records_nested_up_to_the_maximum_depth_are_converted_on_a_small_stack() throws Exception {
+        // Given
+        GenericRecord record = linkedNodeRecords(NestingDepth.DEFAULT_MAX_DEPTH);
+
+        // When
+        ClipboardPage actual = callWithStackSize(SMALL_STACK_SIZE, () -> converter.convertGenericRecordToClipboardPage(api, record, "LinkedNode"));
+
+        // Then
+        ClipboardPage node = actual;
+        for (int value = 0; value < NestingDepth.DEFAULT_MAX_DEPTH - 1; value++) {
+            assertEquals(value, node.getInteger("value"));
+            node = node.getPage("next");
+        }
+        assertEquals(NestingDepth.DEFAULT_MAX_DEPTH - 1, node.getInteger("value"));
+    }
+
+    @Test
+    public void recursive_records_nested_up_to_the_depth_limit_are_converted_on_a_small_stack() throws Exception {
+        // Given
+        GenericRecordToClipboardPageConverter objectUnderTest = new GenericRecordToClipboardPageConverter(NestingDepth.MAX_DEPTH_LIMIT);
+        GenericRecord record = linkedNodeRecords(NestingDepth.MAX_DEPTH_LIMIT);
+
+        // When
+        ClipboardPage actual = callWithStackSize(SMALL_STACK_SIZE, () -> objectUnderTest.convertGenericRecordToClipboardPage(api, record, "LinkedNode"));
+
+        // Then
+        ClipboardPage node = actual;
+        for (int value = 0; value < NestingDepth.MAX_DEPTH_LIMIT - 1; value++) {
+            node = node.getPage("next");
+        }
+        assertEquals(NestingDepth.MAX_DEPTH_LIMIT - 1, node.getInteger("value"));
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void records_of_another_schema_nested_deeper_than_the_maximum_depth_should_give_error() {
+        // Given
+        GenericRecordToClipboardPageConverter objectUnderTest = new GenericRecordToClipboardPageConverter(10);
+        Schema otherSchema = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"LinkedNode\", \"fields\": ["
+                + "{\"name\": \"value\", \"type\": \"int\"},"
+                + "{\"name\": \"label\", \"type\": [\"null\", \"string\"], \"default\": null},"
+                + "{\"name\": \"next\", \"type\": [\"null\", \"LinkedNode\"], \"default\": null}]}");
+        GenericRecord otherNodes = null;
+        for (int value = 10; value >= 5; value--) {
+            otherNodes = new GenericRecordBuilder(otherSchema).set("value", value).set("next", otherNodes).build();
+        }
+        GenericRecord record = linkedNodeRecords(5);
+        GenericRecord last = record;
+        while (last.get("next") != null) {
+            last = (GenericRecord) last.get("next");
+        }
+        last.put("next", otherNodes);
+
+        // When
+        objectUnderTest.convertGenericRecordToClipboardPage(api, record, "LinkedNode");
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void recursive_records_nested_deeper_than_the_maximum_depth_should_give_error() {
+        // Given
+        GenericRecordToClipboardPageConverter objectUnderTest = new GenericRecordToClipboardPageConverter(10);
+        GenericRecord record = linkedNodeRecords(11);
+
+        // When
+        objectUnderTest.convertGenericRecordToClipboardPage(api, record, "LinkedNode");
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void record_which_contains_itself_should_give_error() {
+        // Given
+        GenericRecord record = linkedNodeRecords(1);
+        record.put("next", record);
+
+        // When
+        converter.convertGenericRecordToClipboardPage(api, record, "LinkedNode");
+    }
+
+    private static GenericRecord linkedNodeRecords(int depth) {
+        Schema schema = buildLinkedNodeSchema();
+        GenericRecord next = null;
+        for (int value = depth - 1; value >= 0; value--) {
+            next = new GenericRecordBuilder(schema).set("value", value).set("next", next).build();
+        }
+
+        return next;
+    }
+
+    private static GenericRecord encodeAndDecode(GenericRecord record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(record.getSchema()).write(record, encoder);
+        encoder.flush();
+
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+        return new GenericDatumReader<GenericRecord>(record.getSchema()).read(null, decoder);
+    }
+}
@@ -0,0 +1,218 @@
+package com.pega.integration.kafka.compression;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.integration.kafka.registry.SchemaCache;
+import com.pega.integration.kafka.util.ConfluentWireFormat;
+import com.pega.integration.kafka.util.ReusableByteArrayOutputStream;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ZstdDictionaryCompressionTest {
+    private static final String TOPIC = "customers";
+    private static final Schema CUSTOMER_SCHEMA = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Customer\", \"fields\": ["
+            + "{\"name\": \"id\", \"type\": \"long\"},"
+            + "{\"name\": \"name\", \"type\": \"string\"},"
+            + "{\"name\": \"status\", \"type\": \"string\"},"
+            + "{\"name\": \"email\", \"type\": \"string\"}]}");
+    private static final String[] STATUSES = {"ACTIVE", "SUSPENDED", "CLOSED", "PENDING_VERIFICATION"};
+    private static final int SAMPLES = 500;
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+
+    private MockSchemaRegistryClient schemaRegistryClient;
+    private SchemaCache schemaCache;
+    private int schemaId;
+
+    @Before
+    public void setUp() throws Exception {
+        schemaRegistryClient = new MockSchemaRegistryClient();
+        schemaCache = new SchemaCache(schemaRegistryClient, 100, 0, 0);
+        schemaId = schemaRegistryClient.register(TOPIC + "-value", new AvroSchema(CUSTOMER_SCHEMA));
+    }
+
+    @Test
+    public void messages_are_compressed_once_dictionary_is_trained_from_samples() throws IOException {
+        // Given
+        AtomicInteger trainingTasks = new AtomicInteger();
+        AtomicInteger registryTasks = new AtomicInteger();
+        ZstdDictionaryCompression compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC,
+                MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, SAMPLES, 4096, task -> {
+            trainingTasks.incrementAndGet();
+            task.run();
+        }, task -> {
+            registryTasks.incrementAndGet();
+            task.run();
+        });
+        List<byte[]> samples = messages(0, SAMPLES);
+
+        // When
+        List<byte[]> sent = new ArrayList<>();
+        for (byte[] sample : samples) {
+            sent.add(compression.compress(sample));
+        }
+        byte[] message = messages(SAMPLES, 1).get(0);
+        byte[] compressed = compression.compress(message);
+
+        // Then
+        for (int i = 0; i < SAMPLES; i++) {
+            assertSame(samples.get(i), sent.get(i));
+        }
+        assertEquals("training", 1, trainingTasks.get());
+        assertEquals("lookup and registration", 2, registryTasks.get());
+        assertTrue(ZstdDictionaryCompression.isCompressed(compressed));
+        assertTrue(compressed.length < message.length);
+        assertEquals(schemaId, readInt(compressed, 1));
+        assertEquals(1, schemaRegistryClient.getAllVersions(String.format(ZstdDictionaryCompression.SUBJECT_FORMAT, TOPIC, schemaId)).size());
+    }
+
+    @Test
+    public void compressed_messages_are_decompressed_with_dictionary_from_registry() throws IOException {
+        // Given
+        ZstdDictionaryCompression producer = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC,
+                MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, SAMPLES, 4096, Runnable::run, Runnable::run);
+        for (byte[] sample : messages(0, SAMPLES)) {
+            producer.compress(sample);
+        }
+        byte[] message = messages(SAMPLES, 1).get(0);
+        byte[] compressed = producer.compress(message);
+        ZstdDictionaryCompression consumer = new ZstdDictionaryCompression(schemaRegistryClient,
+                new SchemaCache(schemaRegistryClient, 100, 0, 0), TOPIC, MAX_MESSAGE_SIZE);
+
+        // When
+        byte[] decompressed = consumer.decompress(compressed);
+
+        // Then
+        assertTrue(ZstdDictionaryCompression.isCompressed(compressed));
+        assertArrayEquals(message, decompressed);
+    }
+
+    @Test
+    public void registered_dictionary_is_used_without_training_another_one() throws Exception {
+        // Given
+        ZstdDictionaryCompression firstNode = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC,
+                MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, SAMPLES, 4096, Runnable::run, Runnable::run);
+        for (byte[] sample : messages(0, SAMPLES)) {
+            firstNode.compress(sample);
+        }
+        byte[] message = messages(SAMPLES, 1).get(0);
+        byte[] compressedByFirstNode = firstNode.compress(message);
+        ZstdDictionaryCompression secondNode = new ZstdDictionaryCompression(schemaRegistryClient,
+                new SchemaCache(schemaRegistryClient, 100, 0, 0), TOPIC, MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, SAMPLES, 4096, Runnable::run, Runnable::run);
+
+        // When
+        byte[] first = secondNode.compress(message);
+        byte[] second = secondNode.compress(message);
+
+        // Then
+        assertSame(message, first);
+        assertArrayEquals(compressedByFirstNode, second);
+        assertEquals(1, schemaRegistryClient.getAllVersions(String.format(ZstdDictionaryCompression.SUBJECT_FORMAT, TOPIC, schemaId)).size());
+    }
+
+    @Test
+    public void dictionaries_arent_trained_without_registration() throws IOException {
+        // Given
+        AtomicInteger trainingTasks = new AtomicInteger();
+        ZstdDictionaryCompression compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC,
+                MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, 0, 4096, task -> {
+            trainingTasks.incrementAndGet();
+            task.run();
+        }, Runnable::run);
+        List<byte[]> messages = messages(0, SAMPLES + 1);
+
+        // When
+        List<byte[]> sent = new ArrayList<>();
+        for (byte[] message : messages) {
+            sent.add(compression.compress(message));
+        }
+
+        // Then
+        for (int i = 0; i < messages.size(); i++) {
+            assertSame(messages.get(i), sent.get(i));
+        }
+        assertEquals(0, trainingTasks.get());
+        assertTrue(schemaRegistryClient.getAllSubjects().stream().noneMatch(subject -> subject.contains("zstd-dictionary")));
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void compressed_message_larger_than_maximum_message_size_gives_error() throws IOException {
+        // Given
+        ZstdDictionaryCompression producer = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC,
+                MAX_MESSAGE_SIZE, ZstdDictionaryCompression.DEFAULT_LEVEL, SAMPLES, 4096, Runnable::run, Runnable::run);
+        for (byte[] sample : messages(0, SAMPLES)) {
+            producer.compress(sample);
+        }
+        byte[] message = messages(SAMPLES, 1).get(0);
+        byte[] compressed = producer.compress(message);
+        ZstdDictionaryCompression consumer = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC, message.length - 1);
+
+        // When
+        consumer.decompress(compressed);
+    }
+
+    @Test
+    public void uncompressed_messages_are_passed_through() throws IOException {
+        // Given
+        ZstdDictionaryCompression compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC, MAX_MESSAGE_SIZE);
+        byte[] message = messages(0, 1).get(0);
+
+        // When
+        byte[] compressed = compression.compress(message);
+        byte[] decompressed = compression.decompress(message);
+
+        // Then
+        assertSame(message, compressed);
+        assertSame(message, decompressed);
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void dictionary_id_of_schema_which_isnt_a_dictionary_gives_error() {
+        // Given
+        ZstdDictionaryCompression compression = new ZstdDictionaryCompression(schemaRegistryClient, schemaCache, TOPIC, MAX_MESSAGE_SIZE);
+        byte[] data = {ZstdDictionaryCompression.MAGIC_BYTE, 0, 0, 0, 7, 0, 0, 0, (byte) schemaId, 1, 2, 3};
+
+        // When
+        compression.decompress(data);
+    }
+
+    private List<byte[]> messages(int from, int count) throws IOException {
+        List<byte[]> messages = new ArrayList<>();
+        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(CUSTOMER_SCHEMA);
+        for (int i = from; i < from + count; i++) {
+            GenericRecord record = new GenericData.Record(CUSTOMER_SCHEMA);
+            record.put("id", 100_000L + i * 37L);
+            record.put("name", "Customer " + i);
+            record.put("status", STATUSES[i % STATUSES.length]);
+            record.put("email", "customer." + i + "@example.com");
+
+            ReusableByteArrayOutputStream output = new ReusableByteArrayOutputStream(128);
+            ConfluentWireFormat.writeHeader(output, schemaId);
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(output, null);
+            writer.write(record, encoder);
+            messages.add(output.toByteArray());
+        }
+
+        return messages;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,58 @@
+package com.pega.integration.kafka.converter.plan;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.Test;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildDeeplyNestedSchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildFlatSchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildLinkedNodeSchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildTreeNodeSchema;
+import static org.junit.Assert.assertEquals;
+
+public class NestingDepthTest {
+
+    @Test
+    public void depth_of_nested_records_counts_every_level() {
+        assertEquals(1, new NestingDepth().of(buildFlatSchema()));
+        assertEquals(9, new NestingDepth().of(buildDeeplyNestedSchema(8)));
+    }
+
+    @Test
+    public void recursive_records_are_unbounded() {
+        assertEquals(NestingDepth.UNBOUNDED, new NestingDepth().of(buildTreeNodeSchema()));
+        assertEquals(NestingDepth.UNBOUNDED, new NestingDepth().of(buildLinkedNodeSchema()));
+    }
+
+    @Test
+    public void records_containing_a_recursive_record_are_unbounded() {
+        // Given
+        Schema schema = SchemaBuilder.record("Forest").fields()
+                .name("name").type().stringType().noDefault()
+                .name("trees").type().array().items(buildTreeNodeSchema()).noDefault()
+                .endRecord();
+
+        // When
+        int depth = new NestingDepth().of(schema);
+
+        // Then
+        assertEquals(NestingDepth.UNBOUNDED, depth);
+    }
+
+    @Test
+    public void named_record_used_by_several_fields_is_not_recursive() {
+        // Given
+        Schema address = SchemaBuilder.record("Address").fields().name("city").type().stringType().noDefault().endRecord();
+        Schema schema = SchemaBuilder.record("Customer").fields()
+                .name("home").type(address).noDefault()
+                .name("previous").type().map().values(address).noDefault()
+                .name("work").type().unionOf().nullType().and().type(address).endUnion().nullDefault()
+                .endRecord();
+
+        // When
+        int depth = new NestingDepth().of(schema);
+
+        // Then
+        assertEquals(2, depth);
+    }
+}
@@ -0,0 +1,197 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReadPlanCompilerTest {
+    private static final Schema ACCOUNT_SCHEMA = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Account\", \"fields\": ["
+            + "{\"name\": \"status\", \"type\": \"string\", \"lowCardinality\": true},"
+            + "{\"name\": \"holder\", \"type\": \"string\"}]}");
+    private static final Schema PAYMENT_SCHEMA = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Payment\", \"fields\": ["
+            + "{\"name\": \"createdAt\", \"type\": [\"null\", {\"type\": \"long\", \"logicalType\": \"timestamp-micros\"}]},"
+            + "{\"name\": \"valueDate\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}},"
+            + "{\"name\": \"amount\", \"type\": {\"type\": \"bytes\", \"logicalType\": \"decimal\", \"precision\": 10, \"scale\": 2}}]}");
+
+    @Test
+    public void strings_of_low_cardinality_fields_are_canonicalized() {
+        // Given
+        RecordPopulator populator = ReadPlanCompiler.compile(ACCOUNT_SCHEMA);
+        ClipboardProperty status = mock(ClipboardProperty.class);
+        ClipboardProperty holder = mock(ClipboardProperty.class);
+        ClipboardPage page = mock(ClipboardPage.class);
+        when(page.getProperty("status")).thenReturn(status);
+        when(page.getProperty("holder")).thenReturn(holder);
+
+        // When
+        populator.populate(page, account("ACTIVE", "Rigoberto"));
+        populator.populate(page, account("ACTIVE", "Rigoberto"));
+
+        // Then
+        List<String> statuses = capturedValues(status);
+        List<String> holders = capturedValues(holder);
+        assertEquals("ACTIVE", statuses.get(0));
+        assertSame(statuses.get(0), statuses.get(1));
+        assertEquals("Rigoberto", holders.get(0));
+        assertNotSame(holders.get(0), holders.get(1));
+    }
+
+    @Test
+    public void plan_for_records_of_another_schema_is_compiled_once() {
+        // Given
+        Schema otherSchema = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Account\", \"fields\": ["
+                + "{\"name\": \"status\", \"type\": \"string\", \"lowCardinality\": true},"
+                + "{\"name\": \"holder\", \"type\": \"string\"},"
+                + "{\"name\": \"branch\", \"type\": [\"null\", \"string\"], \"default\": null}]}");
+        RecordPopulator populator = ReadPlanCompiler.compile(ACCOUNT_SCHEMA);
+        ClipboardProperty status = mock(ClipboardProperty.class);
+        ClipboardPage page = mock(ClipboardPage.class);
+        when(page.getProperty("status")).thenReturn(status);
+        when(page.getProperty("holder")).thenReturn(mock(ClipboardProperty.class));
+        when(page.getProperty("branch")).thenReturn(mock(ClipboardProperty.class));
+
+        // When
+        populator.populate(page, otherAccount(otherSchema));
+        populator.populate(page, otherAccount(otherSchema));
+
+        // Then
+        List<String> statuses = capturedValues(status);
+        assertEquals("ACTIVE", statuses.get(0));
+        assertSame(statuses.get(0), statuses.get(1));
+    }
+
+    @Test
+    public void logical_types_are_populated_as_typed_values() {
+        // Given
+        RecordPopulator populator = ReadPlanCompiler.compile(PAYMENT_SCHEMA);
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_DATETIME);
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_DATE);
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        ClipboardPage page = mock(ClipboardPage.class);
+        when(page.getProperty("createdAt")).thenReturn(createdAt);
+        when(page.getProperty("valueDate")).thenReturn(valueDate);
+        when(page.getProperty("amount")).thenReturn(amount);
+        GenericRecord record = new GenericData.Record(PAYMENT_SCHEMA);
+        record.put("createdAt", 1_700_000_000_123_456L);
+        record.put("valueDate", 19_675);
+        record.put("amount", ByteBuffer.wrap(BigInteger.valueOf(-123_450).toByteArray()));
+
+        // When
+        populator.populate(page, record);
+
+        // Then
+        verify(createdAt).setValue(new Date(1_700_000_000_123L));
+        verify(valueDate).setValue(new Date(19_675L * 86_400_000L));
+        verify(amount).setValue(new BigDecimal("-1234.50"));
+    }
+
+    @Test
+    public void timestamp_and_date_of_other_properties_are_populated_as_epoch_values() {
+        // Given
+        RecordPopulator populator = ReadPlanCompiler.compile(PAYMENT_SCHEMA);
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_TEXT);
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_INTEGER);
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        ClipboardPage page = mock(ClipboardPage.class);
+        when(page.getProperty("createdAt")).thenReturn(createdAt);
+        when(page.getProperty("valueDate")).thenReturn(valueDate);
+        when(page.getProperty("amount")).thenReturn(amount);
+        GenericRecord record = new GenericData.Record(PAYMENT_SCHEMA);
+        record.put("createdAt", 1_700_000_000_123_456L);
+        record.put("valueDate", 19_675);
+        record.put("amount", ByteBuffer.wrap(BigInteger.valueOf(-123_450).toByteArray()));
+
+        // When
+        populator.populate(page, record);
+
+        // Then
+        verify(createdAt).setValue("1700000000123456");
+        verify(valueDate).setValue(19_675);
+    }
+
+    @Test
+    public void binary_values_of_record_are_populated_without_copying() {
+        // Given
+        Schema schema = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Attachment\", \"fields\": ["
+                + "{\"name\": \"content\", \"type\": [\"null\", \"bytes\"]},"
+                + "{\"name\": \"digest\", \"type\": {\"type\": \"fixed\", \"name\": \"Digest\", \"size\": 2}}]}");
+        ClipboardProperty content = mock(ClipboardProperty.class);
+        when(content.getMode()).thenReturn(ImmutablePropertyInfo.MODE_JAVA_OBJECT);
+        ClipboardProperty digest = mock(ClipboardProperty.class);
+        when(digest.getMode()).thenReturn(ImmutablePropertyInfo.MODE_JAVA_OBJECT);
+        ClipboardPage page = mock(ClipboardPage.class);
+        when(page.getProperty("content")).thenReturn(content);
+        when(page.getProperty("digest")).thenReturn(digest);
+        byte[] contentBytes = {1, 2, 3};
+        byte[] digestBytes = {4, 5};
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("content", ByteBuffer.wrap(contentBytes));
+        record.put("digest", new GenericData.Fixed(schema.getField("digest").schema(), digestBytes));
+
+        // When
+        ReadPlanCompiler.compile(schema).populate(page, record);
+
+        // Then
+        assertSame(contentBytes, capturedBuffer(content).array());
+        assertSame(digestBytes, capturedBuffer(digest).array());
+    }
+
+    private static ClipboardProperty property(char type) {
+        ClipboardProperty property = mock(ClipboardProperty.class);
+        when(property.getType()).thenReturn(type);
+
+        return property;
+    }
+
+    private static GenericRecord otherAccount(Schema schema) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("status", new Utf8("ACTIVE".getBytes(UTF_8)));
+        record.put("holder", "Rigoberto");
+
+        return record;
+    }
+
+    private static ByteBuffer capturedBuffer(ClipboardProperty property) {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(property).setValue(captor.capture());
+
+        return (ByteBuffer) captor.getValue();
+    }
+
+    private static GenericRecord account(String status, String holder) {
+        GenericRecord record = new GenericData.Record(ACCOUNT_SCHEMA);
+        // Decoded strings don't share a String instance, unlike Utf8s built from strings.
+        record.put("status", new Utf8(status.getBytes(UTF_8)));
+        record.put("holder", new Utf8(holder.getBytes(UTF_8)));
+
+        return record;
+    }
+
+    private static List<String> capturedValues(ClipboardProperty property) {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(property, times(2)).setValue(captor.capture());
+
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,45 @@
+package com.pega.integration.kafka.converter.plan;
+
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildBankAccountSchemaWithANewField;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildInitialBankAccountSchema;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResolutionPlansTest {
+
+    @Test
+    public void plan_is_created_once_per_writer_id_and_reader_schema() {
+        // Given
+        ResolutionPlans plans = new ResolutionPlans();
+        Schema writerSchema = buildInitialBankAccountSchema();
+        Schema readerSchema = buildBankAccountSchemaWithANewField();
+
+        // When
+        ResolutionPlan first = plans.get(1, writerSchema, readerSchema);
+        ResolutionPlan second = plans.get(1, writerSchema, buildBankAccountSchemaWithANewField());
+        ResolutionPlan otherWriter = plans.get(2, buildBankAccountSchemaWithANewField(), readerSchema);
+
+        // Then
+        assertSame(first, second);
+        assertNotSame(first, otherWriter);
+    }
+
+    @Test
+    public void plan_for_equal_writer_and_reader_schema_skips_resolution() {
+        // Given
+        ResolutionPlans plans = new ResolutionPlans();
+
+        // When
+        ResolutionPlan samePlan = plans.get(1, buildInitialBankAccountSchema(), buildInitialBankAccountSchema());
+        ResolutionPlan evolvedPlan = plans.get(1, buildInitialBankAccountSchema(), buildBankAccountSchemaWithANewField());
+
+        // Then
+        assertTrue(samePlan.isIdentity());
+        assertFalse(evolvedPlan.isIdentity());
+    }
+}
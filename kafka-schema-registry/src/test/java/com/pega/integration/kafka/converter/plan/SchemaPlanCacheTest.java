@@ -0,0 +1,72 @@
+package com.pega.integration.kafka.converter.plan;
+
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCountrySchema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SchemaPlanCacheTest {
+
+    @Test
+    public void plan_is_compiled_once_per_schema_fingerprint() {
+        // Given
+        AtomicInteger compilations = new AtomicInteger();
+        SchemaPlanCache<Object> cache = new SchemaPlanCache<>(schema -> {
+            compilations.incrementAndGet();
+            return new Object();
+        });
+        Schema firstInstance = buildCitySchema();
+        Schema secondInstance = buildCitySchema();
+
+        // When
+        Object firstPlan = cache.get(firstInstance);
+        Object secondPlan = cache.get(secondInstance);
+        Object thirdPlan = cache.get(firstInstance);
+
+        // Then
+        assertNotSame(firstInstance, secondInstance);
+        assertSame(firstPlan, secondPlan);
+        assertSame(firstPlan, thirdPlan);
+        assertEquals(1, compilations.get());
+    }
+
+    @Test
+    public void different_schemas_get_different_plans() {
+        // Given
+        SchemaPlanCache<RecordWriter> cache = new SchemaPlanCache<>(WritePlanCompiler::compile);
+
+        // When
+        RecordWriter cityPlan = cache.get(buildCitySchema());
+        RecordWriter countryPlan = cache.get(buildCountrySchema());
+
+        // Then
+        assertNotSame(cityPlan, countryPlan);
+        assertEquals("City", cityPlan.getSchema().getName());
+        assertEquals("Country", countryPlan.getSchema().getName());
+    }
+
+    @Test
+    public void schema_instances_are_not_kept_after_their_plan_is_evicted() {
+        // Given
+        AtomicInteger compilations = new AtomicInteger();
+        SchemaPlanCache<Object> cache = new SchemaPlanCache<>(schema -> {
+            compilations.incrementAndGet();
+            return new Object();
+        }, 1);
+        Schema city = buildCitySchema();
+
+        // When
+        cache.get(city);
+        cache.get(buildCountrySchema());
+        cache.get(city);
+
+        // Then
+        assertEquals(3, compilations.get());
+    }
+}
@@ -0,0 +1,54 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildPersonSchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildTreeNodeSchema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SchemaProjectionTest {
+
+    @Test
+    public void projection_keeps_only_the_given_fields_in_schema_order() {
+        // Given
+        SchemaProjection objectUnderTest = new SchemaProjection(ImmutableSet.of("age", "firstName", "unknown"));
+
+        // When
+        Schema actual = objectUnderTest.apply(buildPersonSchema());
+
+        // Then
+        assertEquals("Person", actual.getFullName());
+        assertEquals(2, actual.getFields().size());
+        assertEquals("firstName", actual.getFields().get(0).name());
+        assertEquals("age", actual.getFields().get(1).name());
+    }
+
+    @Test
+    public void projection_is_cached_per_schema() {
+        // Given
+        SchemaProjection objectUnderTest = new SchemaProjection(ImmutableSet.of("firstName"));
+
+        // When
+        Schema first = objectUnderTest.apply(buildPersonSchema());
+        Schema second = objectUnderTest.apply(buildPersonSchema());
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    public void recursive_record_which_cant_be_projected_is_kept_whole() {
+        // Given
+        Schema schema = buildTreeNodeSchema();
+        SchemaProjection objectUnderTest = new SchemaProjection(ImmutableSet.of("children"));
+
+        // When
+        Schema actual = objectUnderTest.apply(schema);
+
+        // Then
+        assertSame(schema, actual);
+    }
+}
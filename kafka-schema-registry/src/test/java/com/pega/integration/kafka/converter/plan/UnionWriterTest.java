@@ -0,0 +1,158 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UnionWriterTest {
+
+    @Test
+    public void text_value_goes_to_string_branch_without_trying_numeric_branches() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().intType().and().doubleType().and().stringType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_TEXT, "Amsterdam");
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals("Amsterdam", value);
+        verify(property, never()).toInteger();
+        verify(property, never()).toDouble();
+    }
+
+    @Test
+    public void numeric_text_value_goes_to_first_matching_numeric_branch() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().booleanType().and().longType().and().stringType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_TEXT, "42");
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals(42L, value);
+        verify(property, never()).toBoolean();
+    }
+
+    @Test
+    public void integer_property_goes_to_int_branch() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().intType().and().stringType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_INTEGER, "7");
+        when(property.toInteger()).thenReturn(7);
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals(7, value);
+    }
+
+    @Test
+    public void boolean_text_value_goes_to_boolean_branch() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().booleanType().and().stringType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_TEXT, "TRUE");
+        when(property.toBoolean()).thenReturn(true);
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals(true, value);
+    }
+
+    @Test
+    public void branch_failing_despite_matching_falls_back_to_next_branch() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().intType().and().stringType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_INTEGER, "not a number");
+        when(property.toInteger()).thenThrow(new NumberFormatException());
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals("not a number", value);
+    }
+
+    @Test
+    public void date_time_property_goes_to_timestamp_branch_without_reading_text() {
+        // Given
+        Schema timestamp = LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().type(timestamp).endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_DATETIME, "20231114T221320.123 GMT");
+        when(property.toDate()).thenReturn(new Date(1_700_000_000_123L));
+
+        // When
+        Object value = writer.write(property);
+
+        // Then
+        assertEquals(1_700_000_000_123L, value);
+        verify(property, never()).getStringValue();
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void value_not_matching_any_branch_gives_error() {
+        // Given
+        UnionWriter writer = unionWriter(SchemaBuilder.unionOf().nullType().and().longType().endUnion());
+        ClipboardProperty property = scalarProperty(ImmutablePropertyInfo.TYPE_TEXT, "Amsterdam");
+
+        // When
+        writer.write(property);
+    }
+
+    private static UnionWriter unionWriter(Schema union) {
+        List<Schema> branches = union.getTypes();
+        FieldWriter[] branchWriters = new FieldWriter[branches.size()];
+        for (int i = 0; i < branchWriters.length; i++) {
+            branchWriters[i] = compileBranch(branches.get(i));
+        }
+
+        return new UnionWriter(union, branchWriters);
+    }
+
+    private static FieldWriter compileBranch(Schema branch) {
+        FieldWriter logicalTypeWriter = FieldWriters.forLogicalType(branch);
+        if (logicalTypeWriter != null) {
+            return logicalTypeWriter;
+        }
+        switch (branch.getType()) {
+            case STRING:
+                return FieldWriters.STRING;
+            case LONG:
+                return FieldWriters.LONG;
+            case INT:
+                return FieldWriters.INT;
+            case DOUBLE:
+                return FieldWriters.DOUBLE;
+            case BOOLEAN:
+                return FieldWriters.BOOLEAN;
+            default:
+                return FieldWriters.unsupported(branch.getType());
+        }
+    }
+
+    private static ClipboardProperty scalarProperty(char type, String value) {
+        ClipboardProperty property = mock(ClipboardProperty.class);
+        when(property.getMode()).thenReturn(ImmutablePropertyInfo.MODE_STRING);
+        when(property.getType()).thenReturn(type);
+        when(property.getStringValue()).thenReturn(value);
+        when(property.getName()).thenReturn("value");
+        return property;
+    }
+}
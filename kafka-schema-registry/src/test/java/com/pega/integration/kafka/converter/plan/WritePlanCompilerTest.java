@@ -0,0 +1,245 @@
+package com.pega.integration.kafka.converter.plan;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.clipboard.ClipboardProperty;
+import com.pega.pegarules.pub.dictionary.ImmutablePropertyInfo;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WritePlanCompilerTest {
+    private static final Schema PAYMENT_SCHEMA = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Payment\", \"fields\": ["
+            + "{\"name\": \"createdAt\", \"type\": {\"type\": \"long\", \"logicalType\": \"timestamp-millis\"}},"
+            + "{\"name\": \"valueDate\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}},"
+            + "{\"name\": \"amount\", \"type\": {\"type\": \"bytes\", \"logicalType\": \"decimal\", \"precision\": 10, \"scale\": 2}},"
+            + "{\"name\": \"fee\", \"type\": {\"type\": \"fixed\", \"name\": \"Fee\", \"size\": 4, \"logicalType\": \"decimal\", \"precision\": 8, \"scale\": 2}}]}");
+
+    private static final Schema ATTACHMENT_SCHEMA = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Attachment\", \"fields\": ["
+            + "{\"name\": \"content\", \"type\": \"bytes\"},"
+            + "{\"name\": \"digest\", \"type\": {\"type\": \"fixed\", \"name\": \"Digest\", \"size\": 4}}]}");
+
+    private static final long CREATED_AT = 1_700_000_000_123L;
+    private static final long VALUE_DATE = 19_675L * 86_400_000L;
+
+    @Test
+    public void logical_types_are_written_from_typed_property_values() {
+        // Given
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_DATETIME);
+        when(createdAt.toDate()).thenReturn(new Date(CREATED_AT));
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_DATE);
+        when(valueDate.toDate()).thenReturn(new Date(VALUE_DATE));
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        when(amount.toBigDecimal()).thenReturn(new BigDecimal("1234.5"));
+        ClipboardProperty fee = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        when(fee.toBigDecimal()).thenReturn(new BigDecimal("-0.75"));
+        ClipboardPage page = page(createdAt, valueDate, amount, fee);
+
+        // When
+        GenericRecord record = WritePlanCompiler.compile(PAYMENT_SCHEMA).write(page);
+
+        // Then
+        assertEquals(CREATED_AT, record.get("createdAt"));
+        assertEquals(19_675, record.get("valueDate"));
+        assertEquals(ByteBuffer.wrap(BigInteger.valueOf(123_450).toByteArray()), record.get("amount"));
+        assertArrayEquals(new byte[]{-1, -1, -1, -75}, ((GenericData.Fixed) record.get("fee")).bytes());
+        verify(createdAt, never()).getStringValue();
+        verify(valueDate, never()).getStringValue();
+        verify(amount, never()).getStringValue();
+        verify(fee, never()).getStringValue();
+    }
+
+    @Test
+    public void directly_encoded_logical_types_are_decoded_to_the_same_values() throws IOException {
+        // Given
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_DATETIME);
+        when(createdAt.toDate()).thenReturn(new Date(CREATED_AT));
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_DATE);
+        when(valueDate.toDate()).thenReturn(new Date(VALUE_DATE));
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        when(amount.toBigDecimal()).thenReturn(new BigDecimal("1234.5"));
+        ClipboardProperty fee = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        when(fee.toBigDecimal()).thenReturn(new BigDecimal("-0.75"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        WritePlanCompiler.compile(PAYMENT_SCHEMA).encode(page(createdAt, valueDate, amount, fee), encoder);
+        encoder.flush();
+        ClipboardProperty[] decoded = {property(ImmutablePropertyInfo.TYPE_DATETIME), property(ImmutablePropertyInfo.TYPE_DATE),
+                property(ImmutablePropertyInfo.TYPE_DECIMAL), property(ImmutablePropertyInfo.TYPE_DECIMAL)};
+
+        // When
+        ReadPlanCompiler.compile(PAYMENT_SCHEMA).decode(page(decoded), DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+
+        // Then
+        verify(decoded[0]).setValue(new Date(CREATED_AT));
+        verify(decoded[1]).setValue(new Date(VALUE_DATE));
+        verify(decoded[2]).setValue(new BigDecimal("1234.50"));
+        verify(decoded[3]).setValue(new BigDecimal("-0.75"));
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void decimal_which_would_need_rounding_gives_error() {
+        // Given
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_DATETIME);
+        when(createdAt.toDate()).thenReturn(new Date(CREATED_AT));
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_DATE);
+        when(valueDate.toDate()).thenReturn(new Date(VALUE_DATE));
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_DECIMAL);
+        when(amount.toBigDecimal()).thenReturn(new BigDecimal("1234.567"));
+
+        // When
+        WritePlanCompiler.compile(PAYMENT_SCHEMA).write(page(createdAt, valueDate, amount, property(ImmutablePropertyInfo.TYPE_DECIMAL)));
+    }
+
+    @Test
+    public void timestamp_of_text_property_is_parsed_as_epoch_value() {
+        // Given
+        ClipboardProperty createdAt = property(ImmutablePropertyInfo.TYPE_TEXT);
+        when(createdAt.getStringValue()).thenReturn(Long.toString(CREATED_AT));
+        ClipboardProperty valueDate = property(ImmutablePropertyInfo.TYPE_INTEGER);
+        when(valueDate.toInteger()).thenReturn(19_675);
+        ClipboardProperty amount = property(ImmutablePropertyInfo.TYPE_INTEGER);
+        when(amount.toBigDecimal()).thenReturn(BigDecimal.TEN);
+        ClipboardProperty fee = property(ImmutablePropertyInfo.TYPE_INTEGER);
+        when(fee.toBigDecimal()).thenReturn(BigDecimal.ONE);
+
+        // When
+        GenericRecord record = WritePlanCompiler.compile(PAYMENT_SCHEMA).write(page(createdAt, valueDate, amount, fee));
+
+        // Then
+        assertEquals(CREATED_AT, record.get("createdAt"));
+        assertEquals(19_675, record.get("valueDate"));
+    }
+
+    @Test
+    public void binary_values_are_written_without_copying() {
+        // Given
+        byte[] content = {1, 2, 3, 4, 5};
+        byte[] digest = {9, 8, 7, 6};
+        ClipboardProperty contentProperty = binaryProperty(ByteBuffer.wrap(content));
+        ClipboardProperty digestProperty = binaryProperty(digest);
+
+        // When
+        GenericRecord record = WritePlanCompiler.compile(ATTACHMENT_SCHEMA).write(page(ATTACHMENT_SCHEMA, contentProperty, digestProperty));
+
+        // Then
+        assertSame(content, ((ByteBuffer) record.get("content")).array());
+        assertSame(digest, ((GenericData.Fixed) record.get("digest")).bytes());
+    }
+
+    @Test
+    public void directly_encoded_binary_values_are_decoded_to_the_same_bytes() throws IOException {
+        // Given
+        ByteBuffer content = ByteBuffer.wrap(new byte[]{0, 1, 2, 3, 4, 5, 6}, 2, 3);
+        byte[] digest = {9, 8, 7, 6};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        WritePlanCompiler.compile(ATTACHMENT_SCHEMA).encode(page(ATTACHMENT_SCHEMA, binaryProperty(content), binaryProperty(digest)), encoder);
+        encoder.flush();
+        ClipboardProperty[] decoded = {binaryProperty(null), binaryProperty(null)};
+
+        // When
+        ReadPlanCompiler.compile(ATTACHMENT_SCHEMA).decode(page(ATTACHMENT_SCHEMA, decoded), DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+
+        // Then
+        verify(decoded[0]).setValue((Object) ByteBuffer.wrap(new byte[]{2, 3, 4}));
+        verify(decoded[1]).setValue((Object) ByteBuffer.wrap(digest));
+        assertEquals(2, content.position());
+    }
+
+    @Test
+    public void bytes_of_text_property_are_taken_as_base64() {
+        // Given
+        ClipboardProperty content = property(ImmutablePropertyInfo.TYPE_TEXT);
+        when(content.getStringValue()).thenReturn("AQID");
+
+        // When
+        GenericRecord record = WritePlanCompiler.compile(ATTACHMENT_SCHEMA).write(page(ATTACHMENT_SCHEMA, content, binaryProperty(new byte[4])));
+
+        // Then
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), record.get("content"));
+    }
+
+    @Test
+    public void binary_values_of_text_and_java_object_properties_round_trip() throws IOException {
+        // Given
+        ClipboardProperty content = property(ImmutablePropertyInfo.TYPE_TEXT);
+        when(content.getStringValue()).thenReturn("AQID");
+        byte[] digest = {9, 8, 7, 6};
+        ClipboardPage page = page(ATTACHMENT_SCHEMA, content, binaryProperty(digest));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        ClipboardProperty[] populated = {property(ImmutablePropertyInfo.TYPE_TEXT), binaryProperty(null)};
+        ClipboardProperty[] decoded = {property(ImmutablePropertyInfo.TYPE_TEXT), binaryProperty(null)};
+
+        // When
+        GenericRecord record = WritePlanCompiler.compile(ATTACHMENT_SCHEMA).write(page);
+        ReadPlanCompiler.compile(ATTACHMENT_SCHEMA).populate(page(ATTACHMENT_SCHEMA, populated), record);
+        WritePlanCompiler.compile(ATTACHMENT_SCHEMA).encode(page, encoder);
+        encoder.flush();
+        ReadPlanCompiler.compile(ATTACHMENT_SCHEMA).decode(page(ATTACHMENT_SCHEMA, decoded), DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+
+        // Then
+        for (ClipboardProperty[] properties : new ClipboardProperty[][]{populated, decoded}) {
+            verify(properties[0]).setValue("AQID");
+            verify(properties[1]).setValue((Object) ByteBuffer.wrap(digest));
+        }
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void fixed_value_of_wrong_size_gives_error() {
+        // Given
+        ClipboardProperty digest = binaryProperty(new byte[]{1, 2});
+
+        // When
+        WritePlanCompiler.compile(ATTACHMENT_SCHEMA).write(page(ATTACHMENT_SCHEMA, binaryProperty(new byte[0]), digest));
+    }
+
+    private static ClipboardProperty binaryProperty(Object value) {
+        ClipboardProperty property = mock(ClipboardProperty.class);
+        when(property.getMode()).thenReturn(ImmutablePropertyInfo.MODE_JAVA_OBJECT);
+        when(property.getObjectValue()).thenReturn(value);
+        when(property.getName()).thenReturn("value");
+        return property;
+    }
+
+    private static ClipboardProperty property(char type) {
+        ClipboardProperty property = mock(ClipboardProperty.class);
+        when(property.getMode()).thenReturn(ImmutablePropertyInfo.MODE_STRING);
+        when(property.getType()).thenReturn(type);
+        when(property.getName()).thenReturn("value");
+        return property;
+    }
+
+    private static ClipboardPage page(ClipboardProperty... properties) {
+        return page(PAYMENT_SCHEMA, properties);
+    }
+
+    private static ClipboardPage page(Schema schema, ClipboardProperty... properties) {
+        ClipboardPage page = mock(ClipboardPage.class);
+        for (Schema.Field field : schema.getFields()) {
+            when(page.getIfPresent(field.name())).thenReturn(properties[field.pos()]);
+            when(page.getProperty(field.name())).thenReturn(properties[field.pos()]);
+        }
+        return page;
+    }
+}
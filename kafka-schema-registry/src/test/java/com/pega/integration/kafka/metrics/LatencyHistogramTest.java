@@ -0,0 +1,42 @@
+package com.pega.integration.kafka.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void test_every_value_falls_within_the_bounds_of_its_bucket() {
+        for (long value : new long[]{0, 1, 3, 4, 7, 8, 9, 1000, 123_456_789, Long.MAX_VALUE}) {
+            // When
+            int bucket = LatencyHistogram.bucketOf(value);
+
+            // Then
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+    @Test
+    public void test_snapshot_reports_percentiles_within_bucket_precision() {
+        // Given
+        LatencyHistogram objectUnderTest = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            objectUnderTest.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        // When
+        LatencySnapshot actual = objectUnderTest.snapshot();
+
+        // Then
+        assertEquals(1000, actual.getCount());
+        assertEquals(500.5, actual.getMean(), 0.001);
+        assertEquals(1000.0, actual.getMax(), 0.001);
+        assertTrue(actual.getP50() >= 500 && actual.getP50() <= 500 * 1.25);
+        assertTrue(actual.getP99() >= 990 && actual.getP99() <= 990 * 1.25);
+    }
+}
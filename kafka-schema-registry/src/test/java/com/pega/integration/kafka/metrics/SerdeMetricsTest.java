@@ -0,0 +1,55 @@
+package com.pega.integration.kafka.metrics;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SerdeMetricsTest {
+
+    @Test
+    public void test_metrics_of_the_same_topic_and_class_are_shared() {
+        // When
+        SerdeMetrics first = SerdeMetrics.forTopicAndClass("shared-topic", "Data-Shared");
+        SerdeMetrics second = SerdeMetrics.forTopicAndClass("shared-topic", "Data-Shared");
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    public void test_recorded_metrics_are_exposed_over_jmx() throws Exception {
+        // Given
+        SerdeMetrics objectUnderTest = SerdeMetrics.forTopicAndClass("jmx-topic", "Data-Jmx");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = SerdeMetrics.objectName("jmx-topic", "Data-Jmx");
+
+        // When
+        objectUnderTest.serialized(100, 2_000);
+        objectUnderTest.deserialized(40, 1_000);
+        objectUnderTest.serializeFailed(new AvroSerdeException("failed"));
+        objectUnderTest.deserializeFailed(new SerializationException("failed"));
+        objectUnderTest.deserializeFailed(new SerializationException("failed"));
+        objectUnderTest.registryFetched(5_000);
+        objectUnderTest.skipped();
+        objectUnderTest.quarantined();
+
+        // Then
+        assertEquals(1L, server.getAttribute(name, "SerializedRecords"));
+        assertEquals(100L, server.getAttribute(name, "BytesOut"));
+        assertEquals(40L, server.getAttribute(name, "BytesIn"));
+        assertEquals(1L, server.getAttribute(name, "RegistryFetches"));
+        assertEquals(1L, server.getAttribute(name, "SkippedRecords"));
+        assertEquals(1L, server.getAttribute(name, "QuarantinedRecords"));
+        assertEquals(1L, ((CompositeData) server.getAttribute(name, "DeserializeLatency")).get("count"));
+        assertEquals(2L, objectUnderTest.getDeserializeFailures().get("SerializationException").longValue());
+        assertEquals(1L, objectUnderTest.getSerializeFailures().get("AvroSerdeException").longValue());
+    }
+}
@@ -0,0 +1,68 @@
+package com.pega.integration.kafka.registry;
+
+import com.pega.integration.kafka.exception.AvroSerdeException;
+import io.confluent.kafka.schemaregistry.client.SchemaMetadata;
+import org.apache.avro.Schema;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildPersonSchema;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class LocalSchemaRegistryClientTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void schemas_are_loaded_from_index() throws Exception {
+        // Given
+        write("person-v1.avsc", buildCitySchema().toString());
+        write("person-v2.avsc", buildPersonSchema().toString());
+        write(LocalSchemaRegistryClient.INDEX_FILE_NAME, "# subject version id file\nperson-value 1 7 person-v1.avsc\n\nperson-value 2 12 person-v2.avsc\n");
+
+        // When
+        LocalSchemaRegistryClient client = LocalSchemaRegistryClient.forUrl(folder.getRoot().toURI().toString());
+
+        // Then
+        assertEquals(buildPersonSchema(), client.getSchemaById(12).rawSchema());
+        assertEquals(Arrays.asList(1, 2), client.getAllVersions("person-value"));
+        SchemaMetadata latest = client.getLatestSchemaMetadata("person-value");
+        assertEquals(12, latest.getId());
+        assertEquals(2, latest.getVersion());
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void incomplete_index_line_gives_error() throws Exception {
+        // Given
+        write(LocalSchemaRegistryClient.INDEX_FILE_NAME, "person-value 1 person.avsc\n");
+
+        // When
+        LocalSchemaRegistryClient.load(folder.getRoot().toPath());
+    }
+
+    @Test(expected = AvroSerdeException.class)
+    public void missing_schema_file_gives_error() throws Exception {
+        // Given
+        write(LocalSchemaRegistryClient.INDEX_FILE_NAME, "person-value 1 1 person.avsc\n");
+
+        // When
+        LocalSchemaRegistryClient.load(folder.getRoot().toPath());
+    }
+
+    @Test
+    public void file_url_is_local() {
+        assertEquals(true, LocalSchemaRegistryClient.isLocalUrl("file:///opt/schemas"));
+        assertEquals(false, LocalSchemaRegistryClient.isLocalUrl("http://mySchemaRegistry:8081"));
+    }
+
+    private void write(String fileName, String content) throws Exception {
+        Files.write(new File(folder.getRoot(), fileName).toPath(), content.getBytes(UTF_8));
+    }
+}
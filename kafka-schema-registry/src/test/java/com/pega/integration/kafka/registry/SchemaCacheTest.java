@@ -0,0 +1,108 @@
+package com.pega.integration.kafka.registry;
+
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.SchemaMetadata;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCountrySchema;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SchemaCacheTest {
+
+    @Test
+    public void schema_is_loaded_once_and_then_served_from_cache() throws Exception {
+        // Given
+        Schema citySchema = buildCitySchema();
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+        when(client.getSchemaById(1)).thenReturn(new AvroSchema(citySchema));
+        SchemaCache cache = new SchemaCache(client, 10, 0, 0);
+
+        // When
+        Schema first = cache.getById(1);
+        Schema second = cache.getById(1);
+
+        // Then
+        assertSame(citySchema, first);
+        assertSame(citySchema, second);
+        verify(client, times(1)).getSchemaById(1);
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+    }
+
+    @Test
+    public void latest_versions_of_subject_are_prefetched() throws Exception {
+        // Given
+        Schema citySchema = buildCitySchema();
+        Schema countrySchema = buildCountrySchema();
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+        when(client.getAllVersions("city-value")).thenReturn(Arrays.asList(1, 2, 3));
+        when(client.getSchemaMetadata("city-value", 2)).thenReturn(new SchemaMetadata(7, 2, citySchema.toString()));
+        when(client.getSchemaMetadata("city-value", 3)).thenReturn(new SchemaMetadata(9, 3, countrySchema.toString()));
+        when(client.getSchemaById(7)).thenReturn(new AvroSchema(citySchema));
+        when(client.getSchemaById(9)).thenReturn(new AvroSchema(countrySchema));
+        SchemaCache cache = new SchemaCache(client, 10, 0, 0);
+
+        // When
+        Map<Integer, Schema> prefetched = cache.prefetchLatestVersions("city-value", 2);
+
+        // Then
+        assertEquals(Arrays.asList(7, 9), Arrays.asList(prefetched.keySet().toArray()));
+        assertSame(countrySchema, cache.getById(9));
+        assertEquals(2, cache.size());
+        verify(client, never()).getSchemaMetadata("city-value", 1);
+    }
+
+    @Test
+    public void least_recently_used_schema_is_evicted_at_maximum_size() throws Exception {
+        // Given
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+        when(client.getSchemaById(1)).thenReturn(new AvroSchema(buildCitySchema()));
+        when(client.getSchemaById(2)).thenReturn(new AvroSchema(buildCountrySchema()));
+        SchemaCache cache = new SchemaCache(client, 1, 0, 0);
+
+        // When
+        cache.getById(1);
+        cache.getById(2);
+        cache.getById(1);
+
+        // Then
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getStats().evictionCount());
+        verify(client, times(2)).getSchemaById(1);
+    }
+
+    @Test
+    public void unknown_id_is_not_requested_again_within_negative_time_to_live() throws Exception {
+        // Given
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+        when(client.getSchemaById(42)).thenThrow(new RestClientException("Schema not found", 404, 40403));
+        SchemaCache cache = new SchemaCache(client, 10, 0, 60_000);
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.getById(42);
+                fail("Unknown schema id should give error");
+            } catch (RestClientException e) {
+                assertEquals(404, e.getStatus());
+            }
+        }
+
+        // Then
+        verify(client, times(1)).getSchemaById(42);
+    }
+}
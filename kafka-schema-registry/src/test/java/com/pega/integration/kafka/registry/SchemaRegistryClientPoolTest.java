@@ -0,0 +1,48 @@
+package com.pega.integration.kafka.registry;
+
+import com.google.common.collect.ImmutableMap;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class SchemaRegistryClientPoolTest {
+    private static final Map<String, Object> CONFIGURATION = ImmutableMap.of("schema.registry.url", "http://registry:8081", "max.schemas.per.subject", 100);
+
+    @Test
+    public void instances_with_the_same_configuration_share_a_client() {
+        // Given
+        SchemaRegistryClientPool pool = new SchemaRegistryClientPool();
+        SchemaRegistryClient client = mock(SchemaRegistryClient.class);
+
+        // When
+        SchemaRegistryClient first = pool.get(CONFIGURATION, () -> client);
+        SchemaRegistryClient second = pool.get(ImmutableMap.of("max.schemas.per.subject", "100", "schema.registry.url", "http://registry:8081"),
+                () -> mock(SchemaRegistryClient.class));
+
+        // Then
+        assertSame(client, first);
+        assertSame(client, second);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void instances_with_different_authentication_get_their_own_client() {
+        // Given
+        SchemaRegistryClientPool pool = new SchemaRegistryClientPool();
+
+        // When
+        SchemaRegistryClient first = pool.get(CONFIGURATION, () -> mock(SchemaRegistryClient.class));
+        SchemaRegistryClient second = pool.get(ImmutableMap.of("schema.registry.url", "http://registry:8081", "max.schemas.per.subject", 100,
+                "basic.auth.user.info", "user:password"), () -> mock(SchemaRegistryClient.class));
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals(2, pool.size());
+    }
+}
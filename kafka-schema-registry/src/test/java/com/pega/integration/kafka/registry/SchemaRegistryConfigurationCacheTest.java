@@ -0,0 +1,69 @@
+package com.pega.integration.kafka.registry;
+
+import com.google.common.collect.ImmutableMap;
+import com.pega.decision.dsm.strategy.clipboard.DSMPegaAPI;
+import com.pega.pegarules.priv.PegaAPI;
+import com.pega.pegarules.pub.clipboard.ClipboardPage;
+import com.pega.pegarules.pub.runtime.PublicAPI;
+import org.junit.Test;
+
+import java.util.Base64;
+
+import static com.pega.integration.kafka.testutils.ClipboardPageFactory.buildSchemaRegistryConfiguration;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class SchemaRegistryConfigurationCacheTest {
+    private static final PublicAPI API = new DSMPegaAPI(mock(PegaAPI.class));
+
+    @Test
+    public void unchanged_configuration_is_parsed_once() {
+        // Given
+        SchemaRegistryConfigurationCache cache = new SchemaRegistryConfigurationCache();
+
+        // When
+        SchemaRegistryConfiguration first = cache.get("Registry", instance("20230101T120000.000 GMT", "FirstName"));
+        SchemaRegistryConfiguration second = cache.get("Registry", instance("20230101T120000.000 GMT", "FirstName"));
+
+        // Then
+        assertSame(first, second);
+        assertEquals("http://registry:8081", second.getClientConfiguration().get("schema.registry.url"));
+        assertEquals("FirstName", second.getSchema().getFields().get(0).name());
+    }
+
+    @Test
+    public void updated_configuration_is_parsed_again() {
+        // Given
+        SchemaRegistryConfigurationCache cache = new SchemaRegistryConfigurationCache();
+        SchemaRegistryConfiguration first = cache.get("Registry", instance("20230101T120000.000 GMT", "FirstName"));
+
+        // When
+        SchemaRegistryConfiguration second = cache.get("Registry", instance("20230102T120000.000 GMT", "GivenName"));
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals("GivenName", second.getSchema().getFields().get(0).name());
+    }
+
+    @Test
+    public void configuration_without_update_date_time_is_always_parsed() {
+        // Given
+        SchemaRegistryConfigurationCache cache = new SchemaRegistryConfigurationCache();
+
+        // When
+        SchemaRegistryConfiguration first = cache.get("Registry", instance("", "FirstName"));
+        SchemaRegistryConfiguration second = cache.get("Registry", instance("", "FirstName"));
+
+        // Then
+        assertNotSame(first, second);
+    }
+
+    private static ClipboardPage instance(String updateDateTime, String fieldName) {
+        String schemaContent = "{\"type\": \"record\", \"name\": \"Person\", \"fields\": [{\"name\": \"" + fieldName + "\", \"type\": \"string\"}]}";
+        return buildSchemaRegistryConfiguration(API, ImmutableMap.of("URL", "http://registry:8081", "pxUpdateDateTime", updateDateTime,
+                "SchemaContent", Base64.getEncoder().encodeToString(schemaContent.getBytes(UTF_8))));
+    }
+}
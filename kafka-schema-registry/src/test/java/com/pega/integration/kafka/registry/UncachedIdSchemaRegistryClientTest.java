@@ -0,0 +1,38 @@
+package com.pega.integration.kafka.registry;
+
+import io.confluent.kafka.schemaregistry.avro.AvroSchemaProvider;
+import io.confluent.kafka.schemaregistry.client.rest.RestService;
+import io.confluent.kafka.schemaregistry.client.rest.entities.SchemaString;
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.pega.integration.kafka.testutils.SchemaFactory.buildCitySchema;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UncachedIdSchemaRegistryClientTest {
+
+    @Test
+    public void schemas_are_fetched_by_id_on_every_lookup() throws Exception {
+        // Given
+        Schema citySchema = buildCitySchema();
+        RestService restService = mock(RestService.class);
+        when(restService.getId(7)).thenReturn(new SchemaString(citySchema.toString()));
+        UncachedIdSchemaRegistryClient client = new UncachedIdSchemaRegistryClient(restService, 10,
+                Collections.singletonList(new AvroSchemaProvider()), Collections.emptyMap(), Collections.emptyMap());
+
+        // When
+        Schema first = (Schema) client.getSchemaById(7).rawSchema();
+        Schema second = (Schema) client.getSchemaBySubjectAndId("city-value", 7).rawSchema();
+
+        // Then
+        assertEquals(citySchema, first);
+        assertEquals(citySchema, second);
+        verify(restService, times(2)).getId(7);
+    }
+}
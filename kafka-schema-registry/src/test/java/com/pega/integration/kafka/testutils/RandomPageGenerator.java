@@ -125,6 +125,7 @@ public class RandomPageGenerator {
         Schema.Type type = schema.getType();
         switch (type) {
             case ENUM:
+                return schema.getEnumSymbols().get(random.nextInt(schema.getEnumSymbols().size()));
             case STRING:
                 return RandomStringUtils.randomAlphabetic(10);
             case INT:
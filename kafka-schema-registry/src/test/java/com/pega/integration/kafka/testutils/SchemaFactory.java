@@ -87,6 +87,97 @@ public class SchemaFactory {
                 .endRecord();
     }
 
+    public static Schema buildTreeNodeSchema() {
+        String schemaContent = "{\"type\": \"record\", \"name\": \"TreeNode\", \"fields\": ["
+                + "{\"name\": \"label\", \"type\": \"string\"},"
+                + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": \"TreeNode\"}}]}";
+
+        return new Schema.Parser().parse(schemaContent);
+    }
+
+    public static Schema buildLinkedNodeSchema() {
+        String schemaContent = "{\"type\": \"record\", \"name\": \"LinkedNode\", \"fields\": ["
+                + "{\"name\": \"value\", \"type\": \"int\"},"
+                + "{\"name\": \"next\", \"type\": [\"null\", \"LinkedNode\"], \"default\": null}]}";
+
+        return new Schema.Parser().parse(schemaContent);
+    }
+
+    public static Schema buildFlatSchema() {
+        SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("FlatRecord").fields();
+        for (int i = 0; i < 5; i++) {
+            fields = fields
+                    .name("stringField" + i).type().stringType().noDefault()
+                    .name("intField" + i).type().intType().noDefault()
+                    .name("longField" + i).type().longType().noDefault()
+                    .name("doubleField" + i).type().doubleType().noDefault()
+                    .name("booleanField" + i).type().booleanType().noDefault();
+        }
+
+        return fields.endRecord();
+    }
+
+    public static Schema buildDeeplyNestedSchema(int depth) {
+        Schema schema = SchemaBuilder
+                .record("Level" + depth)
+                .fields()
+                .name("stringField").type().stringType().noDefault()
+                .name("intField").type().intType().noDefault()
+                .endRecord();
+
+        for (int level = depth - 1; level >= 0; level--) {
+            schema = SchemaBuilder
+                    .record("Level" + level)
+                    .fields()
+                    .name("stringField").type().stringType().noDefault()
+                    .name("intField").type().intType().noDefault()
+                    .name("child").type(schema).noDefault()
+                    .endRecord();
+        }
+
+        return schema;
+    }
+
+    public static Schema buildArrayHeavySchema() {
+        Schema itemSchema = SchemaBuilder
+                .record("ArrayItem")
+                .fields()
+                .name("stringField").type().stringType().noDefault()
+                .name("longField").type().longType().noDefault()
+                .endRecord();
+
+        return SchemaBuilder
+                .record("ArrayHeavyRecord")
+                .fields()
+                .name("strings").type().array().items().stringType().noDefault()
+                .name("integers").type().array().items().intType().noDefault()
+                .name("doubles").type().array().items().doubleType().noDefault()
+                .name("booleans").type().array().items().booleanType().noDefault()
+                .name("items").type().array().items(itemSchema).noDefault()
+                .endRecord();
+    }
+
+    public static Schema buildUnionHeavySchema() {
+        Schema unionItemSchema = SchemaBuilder
+                .record("UnionItem")
+                .fields()
+                .name("stringField").type().stringType().noDefault()
+                .endRecord();
+
+        return SchemaBuilder
+                .record("UnionHeavyRecord")
+                .fields()
+                .name("intOrString").type().unionOf().intType().and().stringType().endUnion().noDefault()
+                .name("stringOrLong").type().unionOf().stringType().and().longType().endUnion().noDefault()
+                .name("doubleOrString").type().unionOf().doubleType().and().stringType().endUnion().noDefault()
+                .name("booleanOrString").type().unionOf().booleanType().and().stringType().endUnion().noDefault()
+                .name("nullableInt").type().unionOf().nullType().and().intType().and().stringType().endUnion().noDefault()
+                .name("nullableString").type().unionOf().nullType().and().stringType().endUnion().noDefault()
+                .name("nullableDouble").type().unionOf().nullType().and().doubleType().and().longType().endUnion().noDefault()
+                .name("nullableRecord").type().unionOf().nullType().and().type(unionItemSchema).endUnion().noDefault()
+                .endRecord();
+    }
+
     public static Schema readSchemaFile(String schemaResourceName) throws Exception {
         String schemaFileContent = getFileContentAsString(schemaResourceName);
         Schema.Parser schemaParser = new Schema.Parser();
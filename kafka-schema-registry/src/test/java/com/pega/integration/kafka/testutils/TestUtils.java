@@ -3,6 +3,8 @@ package com.pega.integration.kafka.testutils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -13,4 +15,30 @@ public class TestUtils {
             return IOUtils.toString(in, UTF_8);
         }
     }
+
+    /**
+     * Calls the callable on a new thread with the given stack size, like the small-stacked threads of a data flow, and
+     * rethrows what it has thrown.
+     */
+    public static <T> T callWithStackSize(long stackSize, Callable<T> callable) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(callable.call());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "small-stack", stackSize);
+        thread.start();
+        thread.join();
+
+        Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return result.get();
+    }
 }
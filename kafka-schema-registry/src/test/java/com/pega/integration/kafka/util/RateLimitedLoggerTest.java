@@ -0,0 +1,47 @@
+package com.pega.integration.kafka.util;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RateLimitedLoggerTest {
+
+    @Test
+    public void messages_within_interval_are_suppressed() {
+        // Given
+        Logger logger = mock(Logger.class);
+        RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 1, TimeUnit.HOURS);
+
+        // When
+        rateLimitedLogger.error("Conversion failed", new RuntimeException());
+        rateLimitedLogger.error("Conversion failed", new RuntimeException());
+        rateLimitedLogger.error("Conversion failed", new RuntimeException());
+
+        // Then
+        verify(logger, times(1)).error(anyString(), any(Throwable.class));
+        assertEquals(2, rateLimitedLogger.getSuppressedCount());
+    }
+
+    @Test
+    public void every_message_is_logged_when_interval_has_elapsed() {
+        // Given
+        Logger logger = mock(Logger.class);
+        RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 0, TimeUnit.SECONDS);
+
+        // When
+        rateLimitedLogger.error("Conversion failed", null);
+        rateLimitedLogger.error("Conversion failed", null);
+
+        // Then
+        verify(logger, times(2)).error("Conversion failed", (Throwable) null);
+        assertEquals(0, rateLimitedLogger.getSuppressedCount());
+    }
+}
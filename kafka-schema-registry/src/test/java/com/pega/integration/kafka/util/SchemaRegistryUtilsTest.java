@@ -33,6 +33,11 @@ public class SchemaRegistryUtilsTest {
         validateUrl("http://mySchemaRegistry:8081");
     }
 
+    @Test
+    public void schema_directory_url_succeeds() {
+        validateUrl("file:///opt/schemas");
+    }
+
     @Test(expected = AvroSerdeException.class)
     public void missing_schema_content_schould_give_error() {
         parseSchemaContent(null);
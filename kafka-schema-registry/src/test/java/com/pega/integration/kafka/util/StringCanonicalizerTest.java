@@ -0,0 +1,59 @@
+package com.pega.integration.kafka.util;
+
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StringCanonicalizerTest {
+
+    @Test
+    public void equal_values_are_mapped_to_the_same_instance() {
+        // Given
+        StringCanonicalizer objectUnderTest = new StringCanonicalizer(16);
+
+        // When
+        String first = objectUnderTest.canonicalize(new Utf8("ACTIVE"));
+        String second = objectUnderTest.canonicalize(new Utf8("ACTIVE"));
+        String other = objectUnderTest.canonicalize(new Utf8("CLOSED"));
+
+        // Then
+        assertEquals("ACTIVE", first);
+        assertSame(first, second);
+        assertEquals("CLOSED", other);
+    }
+
+    @Test
+    public void reused_buffer_is_not_retained_by_the_cache() {
+        // Given
+        StringCanonicalizer objectUnderTest = new StringCanonicalizer(16);
+        Utf8 scratch = new Utf8("NL");
+        String first = objectUnderTest.canonicalize(scratch);
+
+        // When
+        scratch.set("BE");
+        String second = objectUnderTest.canonicalize(scratch);
+
+        // Then
+        assertEquals("NL", first);
+        assertEquals("BE", second);
+        assertSame(first, objectUnderTest.canonicalize(new Utf8("NL")));
+    }
+
+    @Test
+    public void long_values_are_not_cached() {
+        // Given
+        StringCanonicalizer objectUnderTest = new StringCanonicalizer(16);
+        String value = new String(new char[StringCanonicalizer.MAX_CACHED_LENGTH + 1]).replace('\0', 'x');
+
+        // When
+        String first = objectUnderTest.canonicalize(new Utf8(value));
+        String second = objectUnderTest.canonicalize(new Utf8(value));
+
+        // Then
+        assertEquals(value, first);
+        assertNotSame(first, second);
+    }
+}
@@ -0,0 +1,55 @@
+package com.pega.integration.kafka.util;
+
+import com.pega.integration.kafka.testutils.SchemaFactory;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticRecordsTest {
+
+    @Test
+    public void generated_record_is_valid_for_its_schema() throws Exception {
+        // Given
+        Schema schema = SchemaFactory.readSchemaFile("sample_customer_kafka_message_schema.json");
+
+        // When
+        GenericRecord record = SyntheticRecords.generate(schema, 1);
+
+        // Then
+        assertTrue(GenericData.get().validate(schema, record));
+    }
+
+    @Test
+    public void generation_of_recursive_schema_ends() {
+        // Given
+        Schema schema = SchemaFactory.buildTreeNodeSchema();
+
+        // When
+        GenericRecord record = SyntheticRecords.generate(schema, 0);
+
+        // Then
+        assertTrue(GenericData.get().validate(schema, record));
+    }
+
+    @Test
+    public void variants_go_through_different_union_branches() {
+        // Given
+        Schema schema = SchemaBuilder.record("Contact").fields()
+                .name("email").type().unionOf().nullType().and().stringType().endUnion().noDefault()
+                .endRecord();
+
+        // When
+        GenericRecord first = SyntheticRecords.generate(schema, 0);
+        GenericRecord second = SyntheticRecords.generate(schema, 1);
+
+        // Then
+        assertNull(first.get("email"));
+        assertEquals("value1", second.get("email"));
+    }
+}